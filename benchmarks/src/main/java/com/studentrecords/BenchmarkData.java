@@ -0,0 +1,69 @@
+package com.studentrecords;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.sql.SQLException;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Seeded student datasets for the benchmarks, from {@link RosterGenerator}. Each size is
+ * generated once into a template database under the temp directory and copied for every trial,
+ * so all runs of a given size read identical data.
+ */
+final class BenchmarkData {
+    static final String[] PROGRAMS = RosterGenerator.PROGRAMS;
+
+    private static final RosterGenerator GENERATOR = new RosterGenerator();
+    private static final Path TEMPLATE_DIR =
+        Paths.get(System.getProperty("java.io.tmpdir"), "student-records-bench");
+
+    private BenchmarkData() {}
+
+    static String studentId(int i) {
+        return RosterGenerator.studentId(i);
+    }
+
+    static Student student(int i) {
+        return GENERATOR.student(i);
+    }
+
+    /**
+     * Copies the template for the given size into a fresh directory and makes that directory the
+     * working directory, so {@link Database#shared()} (used by Validation and Reports) opens it.
+     * Must run before anything in the fork touches the shared database.
+     */
+    static Path prepareWorkingCopy(int rows) throws IOException, SQLException {
+        Path template = template(rows);
+        Path dir = Files.createTempDirectory("student-records-bench-run");
+        Files.copy(template, dir.resolve("student_records.db"));
+        System.setProperty("user.dir", dir.toString());
+        return dir;
+    }
+
+    static void deleteWorkingCopy(Path dir) throws IOException {
+        Database.shared().close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private static synchronized Path template(int rows) throws IOException, SQLException {
+        Files.createDirectories(TEMPLATE_DIR);
+        Path template = TEMPLATE_DIR.resolve("students-" + RosterGenerator.DEFAULT_SEED + "-" + rows + ".db");
+        if (Files.exists(template)) return template;
+
+        Path partial = TEMPLATE_DIR.resolve("students-" + rows + ".db.partial");
+        Files.deleteIfExists(partial);
+        Database db = new Database(partial.toString());
+        try {
+            db.init();
+            GENERATOR.writeTo(db, rows, null);
+        } finally {
+            db.close();
+        }
+        Files.move(partial, template, StandardCopyOption.ATOMIC_MOVE);
+        return template;
+    }
+}
@@ -0,0 +1,64 @@
+package com.studentrecords;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-row reads and writes plus the grouped counts shown on the admin panel, against the
+ * seeded dataset at each size.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DatabaseBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int rows;
+
+    private Path workDir;
+    private Database db;
+    private int nextRead;
+    private int nextInsert;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workDir = BenchmarkData.prepareWorkingCopy(rows);
+        db = Database.shared();
+        db.init();
+        nextInsert = rows;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkData.deleteWorkingCopy(workDir);
+    }
+
+    /** Inserts rows with fresh IDs after the seeded ones, so the table grows during the trial. */
+    @Benchmark
+    public void addStudent() throws Exception {
+        db.addStudent(BenchmarkData.student(nextInsert++));
+    }
+
+    /** Looks up seeded IDs in a scattered but repeatable order. */
+    @Benchmark
+    public Student getStudent() throws Exception {
+        nextRead = (nextRead + 7919) % rows;
+        return db.getStudent(BenchmarkData.studentId(nextRead));
+    }
+
+    @Benchmark
+    public List<Object[]> countByProgram() throws Exception {
+        return db.countByProgram();
+    }
+
+    @Benchmark
+    public List<Object[]> countByYear() throws Exception {
+        return db.countByYear();
+    }
+}
@@ -0,0 +1,45 @@
+package com.studentrecords;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Database#listStudents} with a program/year filter and no search term, so the search
+ * strategy of {@link ListStudentsBenchmark} does not apply.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterStudentsBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int rows;
+
+    private Path workDir;
+    private Database db;
+    private StudentFilter filter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workDir = BenchmarkData.prepareWorkingCopy(rows);
+        db = Database.shared();
+        db.init();
+        filter = new StudentFilter(BenchmarkData.PROGRAMS[2], 3, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkData.deleteWorkingCopy(workDir);
+    }
+
+    @Benchmark
+    public List<Student> listStudents() throws Exception {
+        return db.listStudents(filter);
+    }
+}
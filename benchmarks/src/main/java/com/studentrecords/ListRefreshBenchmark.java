@@ -0,0 +1,102 @@
+package com.studentrecords;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refreshing the main table's list with new query results, by replacing every row
+ * ({@code setAll}) or by applying only the differences ({@link StudentListDiff}). Besides the
+ * time, {@code cellUpdates} counts the list positions reported as changed, which is the number
+ * of rows the table has to redraw; it is reported as a rate, so divide it by the score for
+ * updates per refresh. Each invocation switches between the two result sets.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ListRefreshBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    public int rows;
+
+    /** unchanged: same rows again; edit: one row changed; add: one new row; remove: one row gone; search: every other row gone. */
+    @Param({"unchanged", "edit", "add", "remove", "search"})
+    public String refresh;
+
+    @Param({"setAll", "diff"})
+    public String strategy;
+
+    private List<Student> before;
+    private List<Student> after;
+    private ObservableList<Student> shown;
+    private boolean showingAfter;
+    private long changed;
+
+    /** Per-operation counts reported next to the throughput. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long cellUpdates;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        before = new ArrayList<>();
+        for (int i = 0; i < rows; i++) before.add(BenchmarkData.student(i));
+        after = new ArrayList<>(before);
+        int middle = rows / 2;
+        switch (refresh) {
+            case "unchanged":
+                // Same values, freshly read: new objects for every row.
+                after.replaceAll(s -> new Student(s.getId(), s.getFirstName(), s.getLastName(), s.getEmail(),
+                    s.getProgram(), s.getYear(), s.getGpa(), s.getNotes()));
+                break;
+            case "edit":
+                Student s = after.get(middle);
+                after.set(middle, new Student(s.getId(), s.getFirstName(), s.getLastName(), s.getEmail(),
+                    s.getProgram(), s.getYear(), 4.0, "Edited"));
+                break;
+            case "add":
+                after.add(middle, BenchmarkData.student(rows + 1));
+                break;
+            case "remove":
+                after.remove(middle);
+                break;
+            case "search":
+                after.clear();
+                for (int i = 0; i < rows; i += 2) after.add(before.get(i));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown refresh: " + refresh);
+        }
+        shown = FXCollections.observableArrayList(before);
+        shown.addListener((ListChangeListener<Student>) c -> {
+            while (c.next()) {
+                changed += c.wasReplaced() ? Math.max(c.getAddedSize(), c.getRemovedSize())
+                    : c.getAddedSize() + c.getRemovedSize();
+            }
+        });
+    }
+
+    @Benchmark
+    public int refresh(Counters counters) {
+        List<Student> next = showingAfter ? before : after;
+        showingAfter = !showingAfter;
+        changed = 0;
+        if ("diff".equals(strategy)) {
+            StudentListDiff.apply(shown, next);
+        } else {
+            shown.setAll(next);
+        }
+        counters.cellUpdates += changed;
+        return shown.size();
+    }
+}
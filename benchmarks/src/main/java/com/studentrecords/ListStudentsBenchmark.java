@@ -0,0 +1,66 @@
+package com.studentrecords;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Database#listStudents} with a name search, alone or with a program/year filter, using
+ * either the full-text index or the LIKE fallback for the search term. The filter alone has no
+ * search term and is measured by {@link FilterStudentsBenchmark}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ListStudentsBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int rows;
+
+    /** search: name only; combined: name, program and year. */
+    @Param({"search", "combined"})
+    public String query;
+
+    /** fts: match against the FTS5 index; like: substring scan over the table. */
+    @Param({"fts", "like"})
+    public String searchStrategy;
+
+    private Path workDir;
+    private Database db;
+    private StudentFilter filter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workDir = BenchmarkData.prepareWorkingCopy(rows);
+        db = Database.shared();
+        db.init();
+        if ("like".equals(searchStrategy)) db.fullTextSearch = false;
+
+        String program = BenchmarkData.PROGRAMS[2];
+        switch (query) {
+            case "search":
+                filter = new StudentFilter(null, null, "garcia");
+                break;
+            case "combined":
+                filter = new StudentFilter(program, 3, "garcia");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown query: " + query);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkData.deleteWorkingCopy(workDir);
+    }
+
+    @Benchmark
+    public List<Student> listStudents() throws Exception {
+        return db.listStudents(filter);
+    }
+}
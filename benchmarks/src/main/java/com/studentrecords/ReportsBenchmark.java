@@ -0,0 +1,53 @@
+package com.studentrecords;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSV export of the whole table or one program, plain or gzip-compressed.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReportsBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int rows;
+
+    /** all: every student; program: one program's students. */
+    @Param({"all", "program"})
+    public String scope;
+
+    @Param({"csv", "csv.gz"})
+    public String format;
+
+    private Path workDir;
+    private Path output;
+    private StudentFilter filter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workDir = BenchmarkData.prepareWorkingCopy(rows);
+        Database.shared().init();
+        output = workDir.resolve("export." + format);
+        filter = "all".equals(scope) ? StudentFilter.ALL : new StudentFilter(BenchmarkData.PROGRAMS[0], null, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkData.deleteWorkingCopy(workDir);
+    }
+
+    @Benchmark
+    public long exportCsv() throws Exception {
+        long written = Reports.exportCsv(output, filter, null);
+        Files.delete(output);
+        return written;
+    }
+}
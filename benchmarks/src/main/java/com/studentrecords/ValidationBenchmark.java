@@ -0,0 +1,56 @@
+package com.studentrecords;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Form validation, including the duplicate-ID lookup against the shared database, for a new ID
+ * and for one that is already taken.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidationBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int rows;
+
+    private Path workDir;
+    private String newId;
+    private String takenId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        workDir = BenchmarkData.prepareWorkingCopy(rows);
+        Database.shared().init();
+        newId = BenchmarkData.studentId(rows + 1);
+        takenId = BenchmarkData.studentId(rows / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkData.deleteWorkingCopy(workDir);
+    }
+
+    @Benchmark
+    public Student validateNewStudent() throws Exception {
+        return Validation.validateStudent(newId, "Ada", "Lovelace", "ada.lovelace@example.edu",
+            "Mathematics", "2", "3.85", "", false, null);
+    }
+
+    @Benchmark
+    public String validateDuplicateId() {
+        try {
+            Validation.validateStudent(takenId, "Ada", "Lovelace", "ada.lovelace@example.edu",
+                "Mathematics", "2", "3.85", "", false, null);
+            throw new IllegalStateException("Duplicate ID was accepted: " + takenId);
+        } catch (ValidationException e) {
+            return e.getMessage();
+        }
+    }
+}
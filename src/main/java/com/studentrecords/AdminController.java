@@ -1,16 +1,21 @@
 package com.studentrecords;
 
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
+import javafx.scene.layout.VBox;
 import javafx.stage.FileChooser;
 import javafx.stage.Window;
+import javafx.stage.WindowEvent;
+import javafx.util.Duration;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.nio.channels.FileChannel;
 import java.sql.SQLException;
 import java.util.List;
 
@@ -22,17 +27,128 @@ public class AdminController {
     @FXML private TableView<ProgramCount> programTable;
     @FXML private TableView<YearCount> yearTable;
     @FXML private Label totalStudentsLabel;
+    @FXML private Tab performanceTab;
+    @FXML private TableView<Metrics.Snapshot> metricsTable;
+    @FXML private CheckBox metricsEnabledCheck;
+    @FXML private Label studentCacheLabel;
+    @FXML private Tab slowQueriesTab;
+    @FXML private Spinner<Integer> slowThresholdSpinner;
+    @FXML private TextArea slowQueryArea;
 
-    private final Database db = new Database();
+    private final Database db = Database.shared();
 
     private final ObservableList<ProgramCount> programCounts =
         FXCollections.observableArrayList();
     private final ObservableList<YearCount> yearCounts =
         FXCollections.observableArrayList();
+    private final ObservableList<Metrics.Snapshot> metrics =
+        FXCollections.observableArrayList();
+
+    private int totalStudents;
+    private final Database.ChangeListener changeListener =
+        event -> Platform.runLater(() -> applyChange(event));
+
+    /** Re-reads the timings every second while the Performance tab is showing. */
+    private final Timeline metricsRefresh =
+        new Timeline(new KeyFrame(Duration.seconds(1), e -> refreshMetrics()));
 
     @FXML
     private void initialize() {
         loadStats();
+        db.addChangeListener(changeListener);
+        // The window is only known once the loaded view is put in a stage.
+        totalStudentsLabel.sceneProperty().addListener((obs, oldScene, scene) -> {
+            if (scene == null) return;
+            scene.windowProperty().addListener((o, oldWindow, window) -> {
+                if (window != null) window.addEventHandler(WindowEvent.WINDOW_HIDDEN, e -> onHidden());
+            });
+        });
+        metricsTable.setItems(metrics);
+        metricsEnabledCheck.setSelected(Metrics.isEnabled());
+        metricsRefresh.setCycleCount(Animation.INDEFINITE);
+        performanceTab.selectedProperty().addListener((obs, was, selected) -> {
+            if (selected) {
+                refreshMetrics();
+                metricsRefresh.play();
+            } else {
+                metricsRefresh.stop();
+            }
+        });
+
+        SlowQueryLog slowLog = db.getSlowQueryLog();
+        slowThresholdSpinner.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(
+            0, 600_000, (int) slowLog.getThresholdMillis(), 50));
+        slowThresholdSpinner.valueProperty().addListener((obs, old, value) -> {
+            if (value != null) slowLog.setThresholdMillis(value);
+        });
+        slowQueriesTab.selectedProperty().addListener((obs, was, selected) -> {
+            if (selected) loadSlowQueries();
+        });
+    }
+
+    private void loadSlowQueries() {
+        try {
+            String log = db.getSlowQueryLog().read();
+            slowQueryArea.setText(log.isEmpty() ? "No slow statements logged." : log);
+            slowQueryArea.positionCaret(slowQueryArea.getLength());
+        } catch (Exception e) {
+            showError("Error Reading Slow-Query Log", e.getMessage());
+        }
+    }
+
+    @FXML
+    private void onRefreshSlowQueries() {
+        loadSlowQueries();
+    }
+
+    @FXML
+    private void onClearSlowQueries() {
+        try {
+            db.getSlowQueryLog().clear();
+            loadSlowQueries();
+        } catch (Exception e) {
+            showError("Error Clearing Slow-Query Log", e.getMessage());
+        }
+    }
+
+    private void refreshMetrics() {
+        Window window = getWindow();
+        if (window == null || !window.isShowing()) {
+            metricsRefresh.stop();
+            return;
+        }
+        metrics.setAll(Metrics.snapshot());
+        metricsTable.sort();
+        studentCacheLabel.setText(StudentCache.shared().summary());
+    }
+
+    @FXML
+    private void onToggleMetrics() {
+        Metrics.setEnabled(metricsEnabledCheck.isSelected());
+    }
+
+    @FXML
+    private void onResetMetrics() {
+        Metrics.reset();
+        metrics.clear();
+    }
+
+    @FXML
+    private void onSaveMetrics() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Save Operation Timings");
+        chooser.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("Text Files", "*.txt"),
+            new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
+        chooser.setInitialFileName("operation_timings.txt");
+        File file = chooser.showSaveDialog(getWindow());
+        if (file == null) return;
+        try {
+            Metrics.dump(file.toPath());
+            showInfo("Timings Saved", "Operation timings saved to:\n" + file.getAbsolutePath());
+        } catch (Exception e) {
+            showError("Save Error", e.getMessage());
+        }
     }
 
     private void loadStats() {
@@ -58,6 +174,7 @@ public class AdminController {
 
             programTable.setItems(programCounts);
             yearTable.setItems(yearCounts);
+            totalStudents = total;
             totalStudentsLabel.setText("Total students: " + total);
         } catch (SQLException e) {
             showError("Error loading statistics", e.getMessage());
@@ -69,28 +186,187 @@ public class AdminController {
         loadStats();
     }
 
+    /** Stops listening for changes and refreshing timings once the panel is closed. */
+    private void onHidden() {
+        db.removeChangeListener(changeListener);
+        metricsRefresh.stop();
+    }
+
+    /**
+     * Adjusts the program and year counts for one committed change instead of re-reading them.
+     * Changes still queued when the panel closes are ignored.
+     */
+    private void applyChange(StudentChangeEvent event) {
+        Window window = getWindow();
+        if (window != null && !window.isShowing()) return;
+        switch (event.getType()) {
+            case BULK:
+                loadStats();
+                return;
+            case CLEARED:
+                programCounts.clear();
+                yearCounts.clear();
+                totalStudents = 0;
+                break;
+            default:
+                Student before = event.getBefore();
+                Student after = event.getAfter();
+                if (before != null && after != null && before.getProgram().equals(after.getProgram())
+                        && before.getYear() == after.getYear()) {
+                    return;
+                }
+                if (before != null) adjustCounts(before, -1);
+                if (after != null) adjustCounts(after, 1);
+                break;
+        }
+        programTable.sort();
+        yearTable.sort();
+        totalStudentsLabel.setText("Total students: " + totalStudents);
+    }
+
+    private void adjustCounts(Student s, int delta) {
+        totalStudents += delta;
+        int i = 0;
+        while (i < programCounts.size() && !programCounts.get(i).getProgram().equals(s.getProgram())) i++;
+        if (i < programCounts.size()) {
+            int count = programCounts.get(i).getCount() + delta;
+            if (count > 0) programCounts.set(i, new ProgramCount(s.getProgram(), count));
+            else programCounts.remove(i);
+        } else if (delta > 0) {
+            // New rows go in program order; the table re-sorts them if a header sort is active.
+            i = 0;
+            while (i < programCounts.size() && programCounts.get(i).getProgram().compareTo(s.getProgram()) < 0) i++;
+            programCounts.add(i, new ProgramCount(s.getProgram(), delta));
+        }
+        i = 0;
+        while (i < yearCounts.size() && yearCounts.get(i).getYear() != s.getYear()) i++;
+        if (i < yearCounts.size()) {
+            int count = yearCounts.get(i).getCount() + delta;
+            if (count > 0) yearCounts.set(i, new YearCount(s.getYear(), count));
+            else yearCounts.remove(i);
+        } else if (delta > 0) {
+            i = 0;
+            while (i < yearCounts.size() && yearCounts.get(i).getYear() < s.getYear()) i++;
+            yearCounts.add(i, new YearCount(s.getYear(), delta));
+        }
+    }
+
+    /**
+     * Applies a registrar roster by diffing it against the stored rows, so only added, changed
+     * and dropped students are written instead of clearing and reloading the table.
+     */
+    @FXML
+    private void onSyncRoster() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Sync Roster");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
+        File file = chooser.showOpenDialog(getWindow());
+        if (file == null) return;
+
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION);
+        confirm.setTitle("Sync Roster");
+        confirm.setHeaderText("Students missing from " + file.getName() + " will be deleted.");
+        confirm.setContentText("Other records are added or updated to match the roster. Continue?");
+        confirm.initOwner(getWindow());
+        if (confirm.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) return;
+
+        Task<RosterSync.SyncResult> task = new Task<>() {
+            @Override
+            protected RosterSync.SyncResult call() throws Exception {
+                return RosterSync.sync(db, file.toPath(), null);
+            }
+        };
+        totalStudentsLabel.setText("Syncing roster…");
+        task.setOnSucceeded(e -> {
+            RosterSync.SyncResult result = task.getValue();
+            String details = result.summary();
+            if (!result.getRejected().isEmpty()) {
+                File report = new File(file.getParentFile(), file.getName() + ".rejected.csv");
+                try {
+                    result.writeRejectedReport(report.toPath());
+                    details += "\n\nRejected rows were written to:\n" + report.getPath();
+                } catch (Exception ex) {
+                    details += "\n\nCould not write rejected-rows report: " + ex.getMessage();
+                }
+            }
+            loadStats();
+            showInfo("Sync Complete", details);
+        });
+        task.setOnFailed(e -> {
+            loadStats();
+            Throwable err = task.getException();
+            showError("Sync Error", err != null ? err.getMessage() : "Unknown error");
+        });
+
+        Thread worker = new Thread(task, "roster-sync");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
     @FXML
     private void onBackupDatabase() {
         FileChooser chooser = new FileChooser();
         chooser.setTitle("Backup Database");
-        chooser.getExtensionFilters().add(
-            new FileChooser.ExtensionFilter("Database Files", "*.db"));
+        chooser.getExtensionFilters().addAll(
+            new FileChooser.ExtensionFilter("Database Files", "*.db"),
+            new FileChooser.ExtensionFilter("Compressed Database Files", "*.db.gz"));
         chooser.setInitialFileName("student_records_backup.db");
         File dst = chooser.showSaveDialog(getWindow());
         if (dst == null) return;
 
-        File src = new File(System.getProperty("user.dir"), "student_records.db");
-        if (!src.exists()) {
-            showError("Backup Error", "Database file not found: " + src.getAbsolutePath());
-            return;
-        }
+        Task<DatabaseBackup.BackupResult> task = new Task<>() {
+            @Override
+            protected DatabaseBackup.BackupResult call() throws Exception {
+                return DatabaseBackup.backup(db, dst.toPath(), (phase, done, total) -> {
+                    updateProgress(done, total);
+                    updateMessage(phase + "… " + (total > 0 ? done * 100 / total : 0) + "%");
+                    return !isCancelled();
+                });
+            }
+        };
+        Dialog<ButtonType> progress = showProgressDialog("Backing Up Database", task);
+        task.setOnSucceeded(e -> {
+            progress.close();
+            showInfo("Backup Complete", task.getValue().summary());
+        });
+        task.setOnFailed(e -> {
+            progress.close();
+            Throwable err = task.getException();
+            if (!(err instanceof java.util.concurrent.CancellationException)) {
+                showError("Backup Error", err != null ? err.getMessage() : "Unknown error");
+            }
+        });
 
-        try {
-            copyFile(src, dst);
-            showInfo("Backup Complete", "Database backed up to:\n" + dst.getAbsolutePath());
-        } catch (Exception e) {
-            showError("Backup Error", e.getMessage());
-        }
+        Thread worker = new Thread(task, "database-backup");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Non-blocking dialog tracking a background task's progress and message. Its Cancel button
+     * cancels the task; the caller closes the dialog when the task finishes.
+     */
+    private Dialog<ButtonType> showProgressDialog(String title, Task<?> task) {
+        ProgressBar bar = new ProgressBar();
+        bar.setPrefWidth(320);
+        bar.progressProperty().bind(task.progressProperty());
+        Label message = new Label();
+        message.textProperty().bind(task.messageProperty());
+
+        VBox content = new VBox(8, message, bar);
+        content.setStyle("-fx-padding: 10;");
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle(title);
+        dialog.setHeaderText(null);
+        dialog.initOwner(getWindow());
+        dialog.getDialogPane().setContent(content);
+        dialog.getDialogPane().getButtonTypes().add(ButtonType.CANCEL);
+        dialog.setOnHidden(e -> {
+            if (task.isRunning()) task.cancel();
+        });
+        dialog.show();
+        return dialog;
     }
 
     @FXML
@@ -102,30 +378,19 @@ public class AdminController {
         confirm.initOwner(getWindow());
         confirm.showAndWait().ifPresent(r -> {
             if (r == ButtonType.OK) {
-                try {
-                    db.deleteAllStudents();
-                    loadStats();
+                db.deleteAllStudentsAsync().whenComplete((rows, err) -> Platform.runLater(() -> {
+                    if (err != null) {
+                        showError("Error Deleting Records", err.getMessage());
+                        return;
+                    }
                     showInfo("Records Cleared",
                         "All student records have been deleted.\n\n" +
                         "If this was a mistake, restore from a backup.");
-                } catch (SQLException e) {
-                    showError("Error Deleting Records", e.getMessage());
-                }
+                }));
             }
         });
     }
 
-    private void copyFile(File src, File dst) throws Exception {
-        try (FileChannel in = new FileInputStream(src).getChannel();
-             FileChannel out = new FileOutputStream(dst).getChannel()) {
-            long size = in.size();
-            long transferred = 0;
-            while (transferred < size) {
-                transferred += in.transferTo(transferred, size - transferred, out);
-            }
-        }
-    }
-
     private Window getWindow() {
         return totalStudentsLabel.getScene() != null
             ? totalStudentsLabel.getScene().getWindow()
@@ -0,0 +1,180 @@
+package com.studentrecords;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Long-lived SQLite connections: one writer guarded by a lock plus a small set of
+ * query-only readers. Each connection keeps its own prepared-statement cache.
+ */
+final class ConnectionPool implements AutoCloseable {
+
+    /** Unit of work run against a borrowed connection. */
+    interface SqlWork<T> {
+        T run(PooledConnection c) throws SQLException;
+    }
+
+    private static final int BUSY_TIMEOUT_MS = 5000;
+
+    private final String url;
+    private final int maxReaders;
+    private final int statementCacheSize;
+    private final PooledConnection writer;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final BlockingQueue<PooledConnection> idleReaders;
+    private final List<PooledConnection> allReaders = new ArrayList<>();
+    private volatile boolean closed;
+
+    ConnectionPool(String url, int maxReaders, int statementCacheSize) throws SQLException {
+        this.url = url;
+        this.maxReaders = maxReaders;
+        this.statementCacheSize = statementCacheSize;
+        this.idleReaders = new ArrayBlockingQueue<>(maxReaders);
+        this.writer = open(false);
+    }
+
+    /** Runs work on the writer connection; callers are serialized. */
+    <T> T write(SqlWork<T> work) throws SQLException {
+        writeLock.lock();
+        try {
+            ensureOpen();
+            return work.run(writer);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Holds the writer lock so no write can start until {@link #resumeWrites()} is called
+     * from the same thread.
+     */
+    void pauseWrites() {
+        writeLock.lock();
+    }
+
+    void resumeWrites() {
+        writeLock.unlock();
+    }
+
+    /** Runs work on an idle reader, opening a new one while below the reader limit. */
+    <T> T read(SqlWork<T> work) throws SQLException {
+        PooledConnection c = borrowReader();
+        try {
+            return work.run(c);
+        } finally {
+            releaseReader(c);
+        }
+    }
+
+    private PooledConnection borrowReader() throws SQLException {
+        ensureOpen();
+        PooledConnection c = idleReaders.poll();
+        if (c != null) return c;
+        synchronized (allReaders) {
+            if (allReaders.size() < maxReaders) {
+                c = open(true);
+                allReaders.add(c);
+                return c;
+            }
+        }
+        try {
+            return idleReaders.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+    }
+
+    private void releaseReader(PooledConnection c) {
+        if (closed) {
+            c.close();
+        } else {
+            idleReaders.offer(c);
+        }
+    }
+
+    private PooledConnection open(boolean queryOnly) throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+        try (Statement st = conn.createStatement()) {
+            st.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS);
+            if (queryOnly) st.execute("PRAGMA query_only = 1");
+        }
+        return new PooledConnection(conn, statementCacheSize);
+    }
+
+    private void ensureOpen() throws SQLException {
+        if (closed) throw new SQLException("Database has been closed");
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        writeLock.lock();
+        try {
+            writer.close();
+        } finally {
+            writeLock.unlock();
+        }
+        PooledConnection c;
+        while ((c = idleReaders.poll()) != null) c.close();
+    }
+
+    /**
+     * A connection plus an LRU cache of its prepared statements. Statements handed out by
+     * {@link #prepare(String)} are owned by the cache and must not be closed by callers.
+     */
+    static final class PooledConnection {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements;
+
+        PooledConnection(Connection connection, int cacheSize) {
+            this.connection = connection;
+            this.statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+                    if (size() <= cacheSize) return false;
+                    closeQuietly(eldest.getValue());
+                    return true;
+                }
+            };
+        }
+
+        Connection connection() {
+            return connection;
+        }
+
+        PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement ps = statements.get(sql);
+            if (ps == null) {
+                ps = connection.prepareStatement(sql);
+                statements.put(sql, ps);
+            } else {
+                ps.clearParameters();
+            }
+            return ps;
+        }
+
+        void close() {
+            for (Iterator<PreparedStatement> it = statements.values().iterator(); it.hasNext(); ) {
+                closeQuietly(it.next());
+                it.remove();
+            }
+            try {
+                connection.close();
+            } catch (SQLException ignored) {}
+        }
+
+        private static void closeQuietly(Statement st) {
+            try {
+                st.close();
+            } catch (SQLException ignored) {}
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.studentrecords;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Bulk import of student CSV files in the layout written by {@link Reports#exportCsv}.
+ * Records are parsed and validated in parallel, IDs are checked for duplicates against an
+ * in-memory set, and valid rows are inserted in large batched transactions.
+ */
+public final class CsvImport {
+    /** Rows committed per transaction; progress is reported between transactions. */
+    private static final int ROWS_PER_TRANSACTION = 10_000;
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+
+    private static final String[] COLUMNS = {
+        "student id", "first name", "last name", "email", "program", "year", "gpa", "notes"
+    };
+
+    private CsvImport() {}
+
+    /** Import progress callback; return false to stop before the next transaction. */
+    public interface ImportProgress {
+        boolean update(long rowsInserted, long rowsToInsert);
+    }
+
+    /**
+     * Imports the file into the database. Rows that fail validation, duplicate an existing ID
+     * or repeat an ID seen earlier in the file are skipped and listed in the result.
+     *
+     * @param progress optional
+     */
+    public static ImportResult importCsv(Database db, Path file, ImportProgress progress) throws IOException, SQLException {
+        long start = System.nanoTime();
+        ParsedCsv parsed = parse(file, db.getStudentIds());
+        List<Student> accepted = parsed.accepted;
+
+        long inserted = 0;
+        boolean cancelled = false;
+        for (int from = 0; from < accepted.size(); from += ROWS_PER_TRANSACTION) {
+            if (progress != null && !progress.update(inserted, accepted.size())) {
+                cancelled = true;
+                break;
+            }
+            int to = Math.min(from + ROWS_PER_TRANSACTION, accepted.size());
+            inserted += db.insertStudents(accepted.subList(from, to));
+        }
+        if (progress != null && !cancelled) progress.update(inserted, accepted.size());
+        return new ImportResult(parsed.rowsRead, inserted, parsed.rejected, cancelled, System.nanoTime() - start);
+    }
+
+    /**
+     * Reads, parses and validates a student CSV file in parallel. IDs are checked in file order
+     * against {@code seen}, which is updated, so the first occurrence of an ID wins.
+     *
+     * @param seen IDs that count as duplicates, e.g. those already stored; modified in place
+     */
+    static ParsedCsv parse(Path file, Set<String> seen) throws IOException {
+        List<CsvRecord> records = readRecords(file);
+        int[] mapping = records.isEmpty() ? defaultMapping() : headerMapping(records.get(0).fields());
+        if (!records.isEmpty() && mapping != null) records = records.subList(1, records.size());
+        if (mapping == null) mapping = defaultMapping();
+
+        int[] columns = mapping;
+        List<CsvRecord> body = records;
+        List<Object> outcomes = IntStream.range(0, body.size()).parallel()
+            .mapToObj(i -> validate(body.get(i), columns))
+            .collect(Collectors.toList());
+
+        List<Student> accepted = new ArrayList<>(outcomes.size());
+        List<Rejection> rejected = new ArrayList<>();
+        for (int i = 0; i < outcomes.size(); i++) {
+            Object o = outcomes.get(i);
+            if (o instanceof Rejection) {
+                rejected.add((Rejection) o);
+            } else {
+                Student s = (Student) o;
+                if (seen.add(s.getId())) accepted.add(s);
+                else rejected.add(new Rejection(body.get(i).line, s.getId(), "Duplicate student ID"));
+            }
+        }
+        return new ParsedCsv(body.size(), accepted, rejected);
+    }
+
+    /** Valid and rejected rows of one file. */
+    static final class ParsedCsv {
+        final int rowsRead;
+        final List<Student> accepted;
+        final List<Rejection> rejected;
+
+        ParsedCsv(int rowsRead, List<Student> accepted, List<Rejection> rejected) {
+            this.rowsRead = rowsRead;
+            this.accepted = accepted;
+            this.rejected = rejected;
+        }
+    }
+
+    private static Object validate(CsvRecord record, int[] columns) {
+        String[] fields = parseFields(record.text);
+        String[] v = new String[COLUMNS.length];
+        for (int c = 0; c < COLUMNS.length; c++) {
+            int idx = columns[c];
+            v[c] = idx >= 0 && idx < fields.length ? fields[idx] : null;
+        }
+        try {
+            return Validation.validateFields(v[0], v[1], v[2], v[3], v[4], v[5], v[6], v[7]);
+        } catch (ValidationException e) {
+            return new Rejection(record.line, v[0], e.getMessage());
+        }
+    }
+
+    /**
+     * Maps our column order to positions in the file if the first record is a header row,
+     * otherwise returns null.
+     */
+    private static int[] headerMapping(String[] header) {
+        Map<String, Integer> positions = new HashMap<>();
+        for (int i = 0; i < header.length; i++) {
+            positions.put(header[i].trim().toLowerCase(Locale.ROOT), i);
+        }
+        if (!positions.containsKey(COLUMNS[0])) return null;
+        int[] mapping = new int[COLUMNS.length];
+        for (int c = 0; c < COLUMNS.length; c++) {
+            mapping[c] = positions.getOrDefault(COLUMNS[c], -1);
+        }
+        return mapping;
+    }
+
+    private static int[] defaultMapping() {
+        return IntStream.range(0, COLUMNS.length).toArray();
+    }
+
+    /**
+     * Splits the file into records without parsing fields, joining physical lines while a
+     * quoted field is still open.
+     */
+    private static List<CsvRecord> readRecords(Path file) throws IOException {
+        List<CsvRecord> out = new ArrayList<>();
+        try (BufferedReader r = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(file), StandardCharsets.UTF_8), READ_BUFFER_SIZE)) {
+            String line;
+            int lineNo = 0;
+            StringBuilder pending = null;
+            int pendingLine = 0;
+            boolean inQuotes = false;
+            while ((line = r.readLine()) != null) {
+                lineNo++;
+                if (lineNo == 1 && !line.isEmpty() && line.charAt(0) == '\uFEFF') line = line.substring(1);
+                for (int i = 0; i < line.length(); i++) {
+                    if (line.charAt(i) == '"') inQuotes = !inQuotes;
+                }
+                if (pending != null) {
+                    pending.append('\n').append(line);
+                } else if (inQuotes) {
+                    pending = new StringBuilder(line);
+                    pendingLine = lineNo;
+                } else if (!line.isEmpty()) {
+                    out.add(new CsvRecord(lineNo, line));
+                    continue;
+                } else {
+                    continue;
+                }
+                if (!inQuotes) {
+                    out.add(new CsvRecord(pendingLine, pending.toString()));
+                    pending = null;
+                }
+            }
+            if (pending != null) out.add(new CsvRecord(pendingLine, pending.toString()));
+        }
+        return out;
+    }
+
+    /** Parses one CSV record; quoted fields may contain commas, doubled quotes and newlines. */
+    static String[] parseFields(String text) {
+        List<String> fields = new ArrayList<>(COLUMNS.length);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (quoted) {
+                if (ch == '"') {
+                    if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(ch);
+                }
+            } else if (ch == '"') {
+                quoted = true;
+            } else if (ch == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (ch != '\r') {
+                field.append(ch);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    private static final class CsvRecord {
+        final int line;
+        final String text;
+
+        CsvRecord(int line, String text) {
+            this.line = line;
+            this.text = text;
+        }
+
+        String[] fields() {
+            return parseFields(text);
+        }
+    }
+
+    static void writeRejections(Path path, List<Rejection> rejected) throws IOException {
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(path.toFile()), StandardCharsets.UTF_8))) {
+            w.write("Line,Student ID,Reason");
+            w.write(System.lineSeparator());
+            for (Rejection r : rejected) {
+                w.write(r.line + "," + quote(r.studentId) + "," + quote(r.reason));
+                w.write(System.lineSeparator());
+            }
+        }
+    }
+
+    private static String quote(String s) {
+        return s == null ? "" : "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+
+    /** A skipped input row and why it was skipped. */
+    public static final class Rejection {
+        private final int line;
+        private final String studentId;
+        private final String reason;
+
+        Rejection(int line, String studentId, String reason) {
+            this.line = line;
+            this.studentId = studentId;
+            this.reason = reason;
+        }
+
+        public int getLine() { return line; }
+        public String getStudentId() { return studentId; }
+        public String getReason() { return reason; }
+    }
+
+    /** Counts, timings and rejected rows of one import. */
+    public static final class ImportResult {
+        private final int rowsRead;
+        private final long rowsInserted;
+        private final List<Rejection> rejected;
+        private final boolean cancelled;
+        private final long elapsedNanos;
+
+        ImportResult(int rowsRead, long rowsInserted, List<Rejection> rejected, boolean cancelled, long elapsedNanos) {
+            this.rowsRead = rowsRead;
+            this.rowsInserted = rowsInserted;
+            this.rejected = Collections.unmodifiableList(rejected);
+            this.cancelled = cancelled;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getRowsRead() { return rowsRead; }
+        public long getRowsInserted() { return rowsInserted; }
+        public List<Rejection> getRejected() { return rejected; }
+        public boolean isCancelled() { return cancelled; }
+        public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+
+        public double getRowsPerSecond() {
+            return rowsRead / Math.max(elapsedNanos / 1e9, 1e-3);
+        }
+
+        public String summary() {
+            return String.format("Read %,d row(s): %,d imported, %,d rejected%s in %,d ms (%,.0f rows/s).",
+                rowsRead, rowsInserted, rejected.size(), cancelled ? ", import cancelled" : "",
+                getElapsedMillis(), getRowsPerSecond());
+        }
+
+        /** Writes the rejected rows as CSV: line number, student ID and reason. */
+        public void writeRejectedReport(Path path) throws IOException {
+            writeRejections(path, rejected);
+        }
+    }
+}
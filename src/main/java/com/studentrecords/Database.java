@@ -1,163 +1,1256 @@
 package com.studentrecords;
 
+import org.sqlite.SQLiteErrorCode;
+import org.sqlite.SQLiteException;
+
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.*;
+import java.text.Normalizer;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
 
 /**
  * SQLite persistence for student records. Enforces unique student ID and required fields.
+ * Connections are long-lived and pooled; use {@link #shared()} rather than constructing
+ * a new instance per caller.
+ *
+ * <p>The database runs in WAL mode, so reads proceed while a write commits. Every mutation
+ * goes through a single writer thread that commits queued writes in groups (see
+ * {@link GroupCommitWriter}). The {@code ...Async} methods return as soon as the write is
+ * queued. The plain methods wait for the commit. Each committed change is published to
+ * {@link ChangeListener}s, so views can update the affected row in place instead of reloading.
  */
-public class Database {
+public class Database implements AutoCloseable {
     private static final String DB_NAME = "student_records.db";
+    private static final String SLOW_QUERY_LOG_NAME = "slow_queries.log";
+    static final int MAX_READERS = 4;
+    private static final int STATEMENT_CACHE_SIZE = 32;
+
+    private static final String INSERT_SQL =
+        "INSERT INTO students (student_id, first_name, last_name, email, program, year, gpa, notes) VALUES (?,?,?,?,?,?,?,?)";
+    private static final String UPDATE_SQL =
+        "UPDATE students SET first_name=?, last_name=?, email=?, program=?, year=?, gpa=?, notes=? WHERE student_id=?";
+    private static final String UPSERT_SQL = INSERT_SQL +
+        " ON CONFLICT(student_id) DO UPDATE SET first_name=excluded.first_name, last_name=excluded.last_name," +
+        " email=excluded.email, program=excluded.program, year=excluded.year, gpa=excluded.gpa, notes=excluded.notes";
+    /** Rows per JDBC batch for bulk writes. */
+    static final int BATCH_SIZE = 1000;
+    private static final String SORT_ORDER = " ORDER BY last_name, first_name, student_id";
+    /** The list order of {@link #SORT_ORDER}, for placing changed rows into a loaded list. */
+    public static final Comparator<Student> LIST_ORDER = Comparator.comparing(Student::getLastName)
+        .thenComparing(Student::getFirstName).thenComparing(Student::getId);
+    /**
+     * Extra time the writer waits for more writes to join a group, overridable with
+     * {@code -Dstudentrecords.commitWindowMillis=...}. With 0, a group is whatever queued while
+     * the previous one committed, which batches concurrent writers without delaying a lone one.
+     */
+    static final long DEFAULT_COMMIT_WINDOW_MILLIS = Long.getLong("studentrecords.commitWindowMillis", 0L);
+    /**
+     * Newest {@code student_changes} entries kept while the database has no incremental backups,
+     * overridable with {@code -Dstudentrecords.changeLogSize=...}; 0 keeps every entry. Older
+     * entries are deleted as writes commit. Once {@link IncrementalBackup} has taken a snapshot,
+     * only shipping removes entries.
+     */
+    static final long CHANGE_LOG_SIZE = Long.getLong("studentrecords.changeLogSize", 1_000_000L);
+    private static final Logger LOG = Logger.getLogger(Database.class.getName());
+
+    /**
+     * When a commit reaches the disk. Futures complete, and the plain write methods return,
+     * once the commit has reached the disk to this degree.
+     */
+    public enum Durability {
+        /** Every commit is synced; nothing committed is lost even on power failure. */
+        FULL,
+        /** Commits survive an application crash; the last few may roll back on power failure or an OS crash. */
+        NORMAL,
+        /** No syncs; an OS crash can corrupt the file. For throwaway bulk loads and benchmarks only. */
+        OFF
+    }
+
+    // Per-method timings shown on the admin panel's Performance tab.
+    private static final Metrics.Timer ADD_TIMER = Metrics.timer("Database.addStudent");
+    private static final Metrics.Timer INSERT_TIMER = Metrics.timer("Database.insertStudents");
+    private static final Metrics.Timer UPSERT_TIMER = Metrics.timer("Database.upsertStudents");
+    private static final Metrics.Timer UPDATE_TIMER = Metrics.timer("Database.updateStudent");
+    private static final Metrics.Timer DELETE_TIMER = Metrics.timer("Database.deleteStudent");
+    private static final Metrics.Timer DELETE_MANY_TIMER = Metrics.timer("Database.deleteStudents");
+    private static final Metrics.Timer DELETE_ALL_TIMER = Metrics.timer("Database.deleteAllStudents");
+    private static final Metrics.Timer IDS_TIMER = Metrics.timer("Database.getStudentIds");
+    private static final Metrics.Timer GET_TIMER = Metrics.timer("Database.getStudent");
+    private static final Metrics.Timer LIST_TIMER = Metrics.timer("Database.listStudents");
+    private static final Metrics.Timer PAGE_TIMER = Metrics.timer("Database.page");
+    private static final Metrics.Timer PAGE_AT_TIMER = Metrics.timer("Database.pageAt");
+    private static final Metrics.Timer COUNT_TIMER = Metrics.timer("Database.countStudents");
+    private static final Metrics.Timer STREAM_TIMER = Metrics.timer("Database.forEachStudent");
+    private static final Metrics.Timer SEARCH_TIMER = Metrics.timer("Database.searchStudents");
+    private static final Metrics.Timer PROGRAMS_TIMER = Metrics.timer("Database.getPrograms");
+    private static final Metrics.Timer BY_PROGRAM_TIMER = Metrics.timer("Database.countByProgram");
+    private static final Metrics.Timer BY_YEAR_TIMER = Metrics.timer("Database.countByYear");
+    private static final Metrics.Timer ROWID_RANGE_TIMER = Metrics.timer("Database.rowidRange");
+    private static final Metrics.Timer SCAN_GRADES_TIMER = Metrics.timer("Database.scanGrades");
+
+    private static Database shared;
+
     private final String dbPath;
+    private final SlowQueryLog slowQueryLog;
+    private ConnectionPool pool;
+    private GroupCommitWriter writer;
+    private volatile ExternalChangeWatcher watcher;
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+    /** Bumped by every published change; see {@link #getVersion()}. */
+    private final AtomicLong version = new AtomicLong();
+    private volatile Durability durability = Durability.valueOf(
+        System.getProperty("studentrecords.durability", Durability.NORMAL.name()).toUpperCase(Locale.ROOT));
+    private volatile long commitWindowMillis = DEFAULT_COMMIT_WINDOW_MILLIS;
+    /** Highest change-log entry already deleted by {@link #trimChangeLog}; only touched on the writer thread. */
+    private long changeLogTrimmedThrough;
+    /** Set by {@link #init()}; package-private so benchmarks can force the LIKE fallback. */
+    volatile boolean fullTextSearch;
 
     public Database() {
-        this.dbPath = new File(System.getProperty("user.dir"), DB_NAME).getAbsolutePath();
+        this(new File(System.getProperty("user.dir"), DB_NAME).getAbsolutePath());
+    }
+
+    public Database(String dbPath) {
+        this.dbPath = dbPath;
+        File dir = new File(dbPath).getAbsoluteFile().getParentFile();
+        this.slowQueryLog = new SlowQueryLog(new File(dir, SLOW_QUERY_LOG_NAME).toPath(),
+            SlowQueryLog.DEFAULT_THRESHOLD_MILLIS);
+    }
+
+    /**
+     * Process-wide instance used by the UI, reports and validation. Its connections are
+     * closed by a shutdown hook.
+     */
+    public static synchronized Database shared() {
+        if (shared == null) {
+            shared = new Database();
+            Runtime.getRuntime().addShutdownHook(new Thread(shared::close, "database-shutdown"));
+        }
+        return shared;
+    }
+
+    public String getPath() {
+        return dbPath;
+    }
+
+    /** Statements slower than its threshold are logged next to the database file. */
+    public SlowQueryLog getSlowQueryLog() {
+        return slowQueryLog;
     }
 
     public void init() throws SQLException {
-        try (Connection c = connect()) {
-            c.createStatement().execute(
-                "CREATE TABLE IF NOT EXISTS students (" +
-                "  student_id TEXT PRIMARY KEY," +
-                "  first_name TEXT NOT NULL," +
-                "  last_name TEXT NOT NULL," +
-                "  email TEXT NOT NULL," +
-                "  program TEXT NOT NULL," +
-                "  year INTEGER NOT NULL CHECK (year >= 1 AND year <= 6)," +
-                "  gpa REAL CHECK (gpa IS NULL OR (gpa >= 0 AND gpa <= 4))," +
-                "  notes TEXT DEFAULT ''" +
-                ")"
-            );
-            c.createStatement().execute(
-                "CREATE INDEX IF NOT EXISTS idx_students_program ON students(program)"
-            );
-            c.createStatement().execute(
-                "CREATE INDEX IF NOT EXISTS idx_students_year ON students(year)"
+        pool().write(c -> {
+            try (Statement st = c.connection().createStatement()) {
+                st.execute("PRAGMA journal_mode = WAL");
+                st.execute("PRAGMA synchronous = " + durability.name());
+                st.execute(
+                    "CREATE TABLE IF NOT EXISTS students (" +
+                    "  student_id TEXT PRIMARY KEY," +
+                    "  first_name TEXT NOT NULL," +
+                    "  last_name TEXT NOT NULL," +
+                    "  email TEXT NOT NULL," +
+                    "  program TEXT NOT NULL," +
+                    "  year INTEGER NOT NULL CHECK (year >= 1 AND year <= 6)," +
+                    "  gpa REAL CHECK (gpa IS NULL OR (gpa >= 0 AND gpa <= 4))," +
+                    "  notes TEXT DEFAULT ''" +
+                    ")"
+                );
+                st.execute("CREATE INDEX IF NOT EXISTS idx_students_program ON students(program)");
+                st.execute("CREATE INDEX IF NOT EXISTS idx_students_year ON students(year)");
+                // Keyset paging seeks on the list order, optionally within a program or year.
+                st.execute("CREATE INDEX IF NOT EXISTS idx_students_sort ON students(last_name, first_name, student_id)");
+                st.execute("CREATE INDEX IF NOT EXISTS idx_students_program_sort ON students(program, last_name, first_name, student_id)");
+                st.execute("CREATE INDEX IF NOT EXISTS idx_students_year_sort ON students(year, last_name, first_name, student_id)");
+                createCountTable(st);
+                createChangeLog(st);
+                fullTextSearch = createSearchIndex(st);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Creates the FTS5 shadow index over ID, names and email plus the triggers that keep it in
+     * sync with {@code students}. A freshly created index is backfilled from existing rows.
+     * The index is keyed on the implicit rowid, so the database must not be VACUUMed.
+     *
+     * @return false if this SQLite build has no FTS5, in which case search falls back to LIKE
+     */
+    private static boolean createSearchIndex(Statement st) throws SQLException {
+        boolean existed = tableExists(st, "students_fts");
+        try {
+            st.execute(
+                "CREATE VIRTUAL TABLE IF NOT EXISTS students_fts USING fts5(" +
+                "  student_id, first_name, last_name, email," +
+                "  content='students', content_rowid='rowid', prefix='2 3')"
             );
+        } catch (SQLException e) {
+            return false;
+        }
+        st.execute(
+            "CREATE TRIGGER IF NOT EXISTS students_fts_ai AFTER INSERT ON students BEGIN" +
+            "  INSERT INTO students_fts(rowid, student_id, first_name, last_name, email)" +
+            "  VALUES (new.rowid, new.student_id, new.first_name, new.last_name, new.email);" +
+            " END"
+        );
+        st.execute(
+            "CREATE TRIGGER IF NOT EXISTS students_fts_ad AFTER DELETE ON students BEGIN" +
+            "  INSERT INTO students_fts(students_fts, rowid, student_id, first_name, last_name, email)" +
+            "  VALUES ('delete', old.rowid, old.student_id, old.first_name, old.last_name, old.email);" +
+            " END"
+        );
+        st.execute(
+            "CREATE TRIGGER IF NOT EXISTS students_fts_au AFTER UPDATE OF student_id, first_name, last_name, email" +
+            " ON students BEGIN" +
+            "  INSERT INTO students_fts(students_fts, rowid, student_id, first_name, last_name, email)" +
+            "  VALUES ('delete', old.rowid, old.student_id, old.first_name, old.last_name, old.email);" +
+            "  INSERT INTO students_fts(rowid, student_id, first_name, last_name, email)" +
+            "  VALUES (new.rowid, new.student_id, new.first_name, new.last_name, new.email);" +
+            " END"
+        );
+        if (!existed) st.execute("INSERT INTO students_fts(students_fts) VALUES ('rebuild')");
+        return true;
+    }
+
+    /**
+     * Creates {@code student_counts}, a per (program, year) row count kept current by triggers,
+     * so dashboard and program-list reads cost O(programs) instead of a scan of
+     * {@code students}. A freshly created table is filled from existing rows.
+     */
+    private static void createCountTable(Statement st) throws SQLException {
+        boolean existed = tableExists(st, "student_counts");
+        st.execute(
+            "CREATE TABLE IF NOT EXISTS student_counts (" +
+            "  program TEXT NOT NULL," +
+            "  year INTEGER NOT NULL," +
+            "  cnt INTEGER NOT NULL," +
+            "  PRIMARY KEY (program, year)" +
+            ") WITHOUT ROWID"
+        );
+        String increment =
+            "  INSERT INTO student_counts(program, year, cnt) VALUES (new.program, new.year, 1)" +
+            "  ON CONFLICT(program, year) DO UPDATE SET cnt = cnt + 1;";
+        String decrement =
+            "  UPDATE student_counts SET cnt = cnt - 1 WHERE program = old.program AND year = old.year;" +
+            "  DELETE FROM student_counts WHERE program = old.program AND year = old.year AND cnt <= 0;";
+        st.execute("CREATE TRIGGER IF NOT EXISTS student_counts_ai AFTER INSERT ON students BEGIN" + increment + " END");
+        st.execute("CREATE TRIGGER IF NOT EXISTS student_counts_ad AFTER DELETE ON students BEGIN" + decrement + " END");
+        st.execute("CREATE TRIGGER IF NOT EXISTS student_counts_au AFTER UPDATE OF program, year ON students BEGIN"
+            + decrement + increment + " END");
+        if (!existed) {
+            st.execute("INSERT INTO student_counts(program, year, cnt)" +
+                " SELECT program, year, COUNT(*) FROM students GROUP BY program, year");
+        }
+    }
+
+    /**
+     * Creates {@code student_changes}, an append-only log of every insert, update and delete on
+     * {@code students} with its time (epoch milliseconds) and JSON before and after images.
+     * {@link IncrementalBackup} ships the log, deletes the entries it has shipped and records
+     * how far it got in {@code student_changes_shipped}. Without incremental backups, writes
+     * keep only the newest {@link #CHANGE_LOG_SIZE} entries (see {@link #trimChangeLog}).
+     */
+    private static void createChangeLog(Statement st) throws SQLException {
+        st.execute(
+            "CREATE TABLE IF NOT EXISTS student_changes (" +
+            "  seq INTEGER PRIMARY KEY AUTOINCREMENT," +
+            "  changed_at INTEGER NOT NULL," +
+            "  op TEXT NOT NULL CHECK (op IN ('I', 'U', 'D'))," +
+            "  before TEXT," +
+            "  after TEXT" +
+            ")"
+        );
+        // One row once an incremental backup set exists: the last entry it holds.
+        st.execute(
+            "CREATE TABLE IF NOT EXISTS student_changes_shipped (" +
+            "  id INTEGER PRIMARY KEY CHECK (id = 1)," +
+            "  through INTEGER NOT NULL" +
+            ")"
+        );
+        String now = "CAST((julianday('now') - 2440587.5) * 86400000 AS INTEGER)";
+        st.execute("CREATE TRIGGER IF NOT EXISTS student_changes_ai AFTER INSERT ON students BEGIN" +
+            "  INSERT INTO student_changes(changed_at, op, after) VALUES (" + now + ", 'I', " + image("new") + ");" +
+            " END");
+        st.execute("CREATE TRIGGER IF NOT EXISTS student_changes_au AFTER UPDATE ON students BEGIN" +
+            "  INSERT INTO student_changes(changed_at, op, before, after) VALUES (" + now + ", 'U', " +
+            image("old") + ", " + image("new") + ");" +
+            " END");
+        st.execute("CREATE TRIGGER IF NOT EXISTS student_changes_ad AFTER DELETE ON students BEGIN" +
+            "  INSERT INTO student_changes(changed_at, op, before) VALUES (" + now + ", 'D', " + image("old") + ");" +
+            " END");
+    }
+
+    /** Columns kept in each change-log row image, in {@link Student} constructor order. */
+    private static final String[] IMAGE_COLUMNS =
+        { "student_id", "first_name", "last_name", "email", "program", "year", "gpa", "notes" };
+    /** Change-log entries after a sequence number, with both row images unpacked into columns. */
+    private static final String CHANGES_SINCE_SQL = "SELECT seq, op, " + extract("before") + ", "
+        + extract("after") + " FROM student_changes WHERE seq > ? ORDER BY seq LIMIT ?";
+
+    /** JSON object of every column of the trigger's {@code old} or {@code new} row. */
+    private static String image(String row) {
+        StringBuilder out = new StringBuilder("json_object(");
+        for (int i = 0; i < IMAGE_COLUMNS.length; i++) {
+            if (i > 0) out.append(", ");
+            out.append('\'').append(IMAGE_COLUMNS[i]).append("', ").append(row).append('.').append(IMAGE_COLUMNS[i]);
+        }
+        return out.append(')').toString();
+    }
+
+    private static String extract(String image) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < IMAGE_COLUMNS.length; i++) {
+            if (i > 0) out.append(", ");
+            out.append("json_extract(").append(image).append(", '$.").append(IMAGE_COLUMNS[i]).append("')");
+        }
+        return out.toString();
+    }
+
+    private static boolean tableExists(Statement st, String name) throws SQLException {
+        try (ResultSet rs = st.executeQuery(
+                "SELECT 1 FROM sqlite_master WHERE type='table' AND name='" + name + "'")) {
+            return rs.next();
+        }
+    }
+
+    private synchronized ConnectionPool pool() throws SQLException {
+        if (pool == null) {
+            pool = new ConnectionPool(getUrl(), MAX_READERS, STATEMENT_CACHE_SIZE);
+        }
+        return pool;
+    }
+
+    private synchronized GroupCommitWriter writer() throws SQLException {
+        if (writer == null) {
+            writer = new GroupCommitWriter(pool(), commitWindowMillis);
+        }
+        return writer;
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    /** Sets how far each commit is synced; applies to the next commit. */
+    public void setDurability(Durability durability) throws SQLException {
+        this.durability = durability;
+        pool().write(c -> {
+            try (Statement st = c.connection().createStatement()) {
+                st.execute("PRAGMA synchronous = " + durability.name());
+            }
+            return null;
+        });
+    }
+
+    public long getCommitWindowMillis() {
+        return commitWindowMillis;
+    }
+
+    /** How long the writer waits for more writes after the first of a group; 0 commits whatever is queued. */
+    public synchronized void setCommitWindowMillis(long millis) {
+        commitWindowMillis = Math.max(0, millis);
+        if (writer != null) writer.setWindowMillis(commitWindowMillis);
+    }
+
+    /** JDBC URL of the database file, for tools that need their own connection. */
+    String getUrl() {
+        return "jdbc:sqlite:" + dbPath;
+    }
+
+    /** Makes writes through this instance wait until {@link #resumeWrites()} on the same thread. */
+    void pauseWrites() throws SQLException {
+        pool().pauseWrites();
+    }
+
+    void resumeWrites() throws SQLException {
+        pool().resumeWrites();
+    }
+
+    /**
+     * Commits queued writes, then closes all pooled connections. A later call on this instance
+     * reopens the pool.
+     */
+    @Override
+    public synchronized void close() {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+
+    /**
+     * Receives committed changes in commit order: this instance's own writes on the database
+     * writer thread, other processes' writes on the watcher thread. Listeners must return
+     * quickly and hand UI work to the UI thread; they cannot wait for writes.
+     */
+    public interface ChangeListener {
+        void studentsChanged(StudentChangeEvent event);
+    }
+
+    /** Adds a listener; the first one also starts watching for other processes' commits. */
+    public synchronized void addChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+        if (watcher == null) {
+            try {
+                watcher = new ExternalChangeWatcher(this, ExternalChangeWatcher.DEFAULT_INTERVAL_MILLIS);
+            } catch (SQLException ignored) {
+                // Own changes are still published; other processes' just go unnoticed.
+            }
+        }
+    }
+
+    public void removeChangeListener(ChangeListener listener) {
+        changeListeners.remove(listener);
+    }
+
+    /**
+     * Counter bumped by every committed change to {@code students} that this instance learns
+     * of, its own or (while a change listener is registered) another process's. Results read
+     * at one version are still current while the version has not moved.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    private void publish(StudentChangeEvent event) {
+        version.incrementAndGet();
+        for (ChangeListener l : changeListeners) {
+            try {
+                l.studentsChanged(event);
+            } catch (RuntimeException ignored) {
+                // One faulty listener must not keep the others from hearing about the change.
+            }
         }
     }
 
-    private Connection connect() throws SQLException {
-        return DriverManager.getConnection("jdbc:sqlite:" + dbPath);
+    /** Publishes a change read back from the change log by {@link ExternalChangeWatcher}. */
+    void publishChange(StudentChangeEvent event) {
+        publish(event);
+    }
+
+    /** {@code PRAGMA data_version} of the writer connection; changes when another connection commits. */
+    long dataVersion() throws SQLException {
+        return pool().write(c -> {
+            try (ResultSet rs = c.prepare("PRAGMA data_version").executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0L;
+            }
+        });
+    }
+
+    /** Sequence number of the newest {@code student_changes} entry, or 0. */
+    long lastChangeSeq() throws SQLException {
+        return pool().read(Database::changeSeq);
+    }
+
+    private static long changeSeq(ConnectionPool.PooledConnection c) throws SQLException {
+        try (ResultSet rs = c.prepare("SELECT seq FROM sqlite_sequence WHERE name='student_changes'").executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0L;
+        }
+    }
+
+    /**
+     * Reads up to {@code limit} {@code student_changes} entries after {@code afterSeq}, oldest
+     * first, as events carrying their sequence numbers.
+     */
+    List<StudentChangeEvent> changesSince(long afterSeq, int limit) throws SQLException {
+        return pool().read(c -> {
+            PreparedStatement ps = c.prepare(CHANGES_SINCE_SQL);
+            ps.setLong(1, afterSeq);
+            ps.setInt(2, limit);
+            List<StudentChangeEvent> events = new ArrayList<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    long seq = rs.getLong(1);
+                    String op = rs.getString(2);
+                    Student before = "I".equals(op) ? null : imageToStudent(rs, 3);
+                    Student after = "D".equals(op) ? null : imageToStudent(rs, 3 + IMAGE_COLUMNS.length);
+                    StudentChangeEvent.Type type = "I".equals(op) ? StudentChangeEvent.Type.INSERTED
+                        : "D".equals(op) ? StudentChangeEvent.Type.DELETED : StudentChangeEvent.Type.UPDATED;
+                    events.add(new StudentChangeEvent(type, before, after, seq));
+                }
+            }
+            return events;
+        });
+    }
+
+    private static Student imageToStudent(ResultSet rs, int first) throws SQLException {
+        Object gpa = rs.getObject(first + 6);
+        return new Student(rs.getString(first), rs.getString(first + 1), rs.getString(first + 2),
+            rs.getString(first + 3), rs.getString(first + 4), rs.getInt(first + 5),
+            gpa != null ? ((Number) gpa).doubleValue() : null, rs.getString(first + 7));
+    }
+
+    /** Publishes a single-row change after commit if the statement touched a row. */
+    private Consumer<Integer> publishIf(StudentChangeEvent.Type type, Student[] before, Student after) {
+        return rows -> {
+            if (rows > 0) publish(new StudentChangeEvent(type, before[0], after));
+        };
+    }
+
+    private void publishBulk(int rows) {
+        if (rows > 0) publish(new StudentChangeEvent(StudentChangeEvent.Type.BULK, null, null));
     }
 
     public void addStudent(Student s) throws SQLException {
-        String sql = "INSERT INTO students (student_id, first_name, last_name, email, program, year, gpa, notes) VALUES (?,?,?,?,?,?,?,?)";
-        try (Connection c = connect(); PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, s.getId());
-            ps.setString(2, s.getFirstName());
-            ps.setString(3, s.getLastName());
-            ps.setString(4, s.getEmail());
-            ps.setString(5, s.getProgram());
-            ps.setInt(6, s.getYear());
-            ps.setObject(7, s.getGpa());
-            ps.setString(8, s.getNotes());
-            ps.executeUpdate();
+        await(addStudentAsync(s));
+    }
+
+    /**
+     * Queues an insert; the future completes with the number of rows inserted once committed.
+     * An existing ID fails it with the same message {@link Validation} gives, which covers an
+     * ID taken by another process since it was validated.
+     */
+    public CompletableFuture<Integer> addStudentAsync(Student s) {
+        return update(ADD_TIMER, StudentChangeEvent.Type.INSERTED, null, s, INSERT_SQL, s.getId(), s.getFirstName(),
+            s.getLastName(), s.getEmail(), s.getProgram(), s.getYear(), s.getGpa(), s.getNotes());
+    }
+
+    /**
+     * Inserts all students in one transaction using JDBC batches. Either every row is inserted
+     * or, on failure, none is.
+     *
+     * @return number of rows inserted
+     */
+    public int insertStudents(List<Student> students) throws SQLException {
+        return await(timed(INSERT_TIMER, batch(INSERT_SQL, sampleParams(students),
+            c -> writeStudents(c, INSERT_SQL, students))));
+    }
+
+    /**
+     * Inserts new students and overwrites existing ones with the same ID, in one transaction.
+     *
+     * @return number of rows written
+     */
+    public int upsertStudents(List<Student> students) throws SQLException {
+        return await(timed(UPSERT_TIMER, batch(UPSERT_SQL, sampleParams(students),
+            c -> writeStudents(c, UPSERT_SQL, students))));
+    }
+
+    private static int writeStudents(ConnectionPool.PooledConnection c, String sql, List<Student> students)
+            throws SQLException {
+        PreparedStatement ps = c.prepare(sql);
+        int pending = 0;
+        for (Student s : students) {
+            bind(ps, params(s));
+            ps.addBatch();
+            if (++pending == BATCH_SIZE) {
+                ps.executeBatch();
+                pending = 0;
+            }
         }
+        if (pending > 0) ps.executeBatch();
+        return students.size();
+    }
+
+    private static Object[] params(Student s) {
+        return new Object[]{ s.getId(), s.getFirstName(), s.getLastName(), s.getEmail(),
+            s.getProgram(), s.getYear(), s.getGpa(), s.getNotes() };
+    }
+
+    /** Parameters of the first row of a batch, shown in the slow-query log; empty if there is none. */
+    private static Object[] sampleParams(List<Student> students) {
+        return students.isEmpty() ? new Object[0] : params(students.get(0));
+    }
+
+    /**
+     * Queues a write that runs one statement in JDBC batches, publishing a bulk change once it
+     * commits. Like {@link #update}, a slow write is logged with its row count and plan; the
+     * entry shows the first row's parameters.
+     */
+    private CompletableFuture<Integer> batch(String sql, Object[] sampleParams, ConnectionPool.SqlWork<Integer> work) {
+        String[] plan = new String[1];
+        long[] elapsed = new long[1];
+        CompletableFuture<Integer> future = write(c -> {
+            long start = System.nanoTime();
+            int n = work.run(c);
+            elapsed[0] = System.nanoTime() - start;
+            if (slowQueryLog.isSlow(elapsed[0])) plan[0] = SlowQueryLog.explain(c.connection(), sql, sampleParams);
+            return n;
+        }, this::publishBulk);
+        future.thenAccept(rows -> {
+            if (plan[0] != null) slowQueryLog.record(sql, sampleParams, rows, elapsed[0], plan[0]);
+        });
+        return future;
     }
 
     public void updateStudent(String existingId, Student s) throws SQLException {
-        String sql = "UPDATE students SET first_name=?, last_name=?, email=?, program=?, year=?, gpa=?, notes=? WHERE student_id=?";
-        try (Connection c = connect(); PreparedStatement ps = c.prepareStatement(sql)) {
-            ps.setString(1, s.getFirstName());
-            ps.setString(2, s.getLastName());
-            ps.setString(3, s.getEmail());
-            ps.setString(4, s.getProgram());
-            ps.setInt(5, s.getYear());
-            ps.setObject(6, s.getGpa());
-            ps.setString(7, s.getNotes());
-            ps.setString(8, existingId);
-            ps.executeUpdate();
-        }
+        await(updateStudentAsync(existingId, s));
+    }
+
+    /** Queues an update; the future completes with the number of rows changed once committed. */
+    public CompletableFuture<Integer> updateStudentAsync(String existingId, Student s) {
+        Student after = new Student(existingId, s.getFirstName(), s.getLastName(), s.getEmail(), s.getProgram(),
+            s.getYear(), s.getGpa(), s.getNotes());
+        return update(UPDATE_TIMER, StudentChangeEvent.Type.UPDATED, existingId, after, UPDATE_SQL,
+            s.getFirstName(), s.getLastName(), s.getEmail(), s.getProgram(), s.getYear(), s.getGpa(), s.getNotes(),
+            existingId);
     }
 
     public void deleteStudent(String studentId) throws SQLException {
-        try (Connection c = connect(); PreparedStatement ps = c.prepareStatement("DELETE FROM students WHERE student_id=?")) {
-            ps.setString(1, studentId);
-            ps.executeUpdate();
-        }
+        await(deleteStudentAsync(studentId));
+    }
+
+    /** Queues a delete; the future completes with the number of rows deleted once committed. */
+    public CompletableFuture<Integer> deleteStudentAsync(String studentId) {
+        return update(DELETE_TIMER, StudentChangeEvent.Type.DELETED, studentId, null,
+            "DELETE FROM students WHERE student_id=?", studentId);
+    }
+
+    /**
+     * Deletes the given students in one transaction.
+     *
+     * @return number of rows deleted
+     */
+    public int deleteStudents(Collection<String> studentIds) throws SQLException {
+        String sql = "DELETE FROM students WHERE student_id=?";
+        Object[] sample = studentIds.isEmpty() ? new Object[0] : new Object[]{ studentIds.iterator().next() };
+        return await(timed(DELETE_MANY_TIMER, batch(sql, sample, c -> {
+            PreparedStatement ps = c.prepare(sql);
+            int pending = 0;
+            int deleted = 0;
+            for (String id : studentIds) {
+                ps.setString(1, id);
+                ps.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    deleted += sum(ps.executeBatch());
+                    pending = 0;
+                }
+            }
+            if (pending > 0) deleted += sum(ps.executeBatch());
+            return deleted;
+        })));
+    }
+
+    private static int sum(int[] counts) {
+        int total = 0;
+        for (int n : counts) total += Math.max(n, 0);
+        return total;
     }
 
     /**
      * Delete all student records. Intended for admin/maintenance use.
      */
     public void deleteAllStudents() throws SQLException {
-        try (Connection c = connect(); Statement st = c.createStatement()) {
-            st.executeUpdate("DELETE FROM students");
-        }
+        await(deleteAllStudentsAsync());
     }
 
-    public Student getStudent(String studentId) throws SQLException {
-        try (Connection c = connect(); PreparedStatement ps = c.prepareStatement("SELECT * FROM students WHERE student_id=?")) {
-            ps.setString(1, studentId);
+    public CompletableFuture<Integer> deleteAllStudentsAsync() {
+        return update(DELETE_ALL_TIMER, StudentChangeEvent.Type.CLEARED, null, null, "DELETE FROM students");
+    }
+
+    /** Every student ID currently stored, for in-memory duplicate checks during bulk work. */
+    public Set<String> getStudentIds() throws SQLException {
+        long start = System.nanoTime();
+        Set<String> result = pool().read(c -> {
+            Set<String> ids = new HashSet<>();
+            PreparedStatement ps = c.prepare("SELECT student_id FROM students");
             try (ResultSet rs = ps.executeQuery()) {
-                return rs.next() ? rowToStudent(rs) : null;
+                while (rs.next()) ids.add(rs.getString(1));
             }
-        }
+            return ids;
+        });
+        IDS_TIMER.record(start, result.size());
+        return result;
+    }
+
+    public Student getStudent(String studentId) throws SQLException {
+        long start = System.nanoTime();
+        List<Student> found = query("SELECT * FROM students WHERE student_id=?",
+            new Object[]{ studentId }, Database::rowToStudent);
+        GET_TIMER.record(start, found.size());
+        return found.isEmpty() ? null : found.get(0);
     }
 
     public List<Student> listStudents(String programFilter, Integer yearFilter, String search) throws SQLException {
+        return listStudents(new StudentFilter(programFilter, yearFilter, search));
+    }
+
+    public List<Student> listStudents(StudentFilter filter) throws SQLException {
+        return listStudents(filter, StudentSort.DEFAULT);
+    }
+
+    /** Matching students in the given order, sorted by SQLite rather than in memory. */
+    public List<Student> listStudents(StudentFilter filter, StudentSort sort) throws SQLException {
+        long start = System.nanoTime();
+        StringBuilder sql = new StringBuilder("SELECT * FROM students WHERE 1=1");
+        List<Object> params = new ArrayList<>();
+        appendFilter(filter, sql, params);
+        sql.append(sort.orderBy());
+        return record(LIST_TIMER, start, query(sql.toString(), params.toArray(), Database::rowToStudent));
+    }
+
+    /**
+     * One page of matching students in list order, using keyset pagination on
+     * (last name, first name, ID) so each page is an index seek rather than an OFFSET scan.
+     *
+     * @param afterKey last student of the previous page, or null for the first page
+     */
+    public List<Student> page(StudentFilter filter, Student afterKey, int limit) throws SQLException {
+        long start = System.nanoTime();
+        StringBuilder sql = new StringBuilder("SELECT * FROM students WHERE 1=1");
+        List<Object> params = new ArrayList<>();
+        appendFilter(filter, sql, params);
+        if (afterKey != null) {
+            sql.append(" AND (last_name, first_name, student_id) > (?, ?, ?)");
+            params.add(afterKey.getLastName());
+            params.add(afterKey.getFirstName());
+            params.add(afterKey.getId());
+        }
+        sql.append(SORT_ORDER).append(" LIMIT ?");
+        params.add(limit);
+        return record(PAGE_TIMER, start, query(sql.toString(), params.toArray(), Database::rowToStudent));
+    }
+
+    /**
+     * One page by position, for jumps to pages whose predecessor has not been read. Prefer
+     * {@link #page(StudentFilter, Student, int)} when the previous page's last row is known.
+     */
+    public List<Student> pageAt(StudentFilter filter, int offset, int limit) throws SQLException {
+        return pageAt(filter, StudentSort.DEFAULT, offset, limit);
+    }
+
+    /** One page by position in the given order. */
+    public List<Student> pageAt(StudentFilter filter, StudentSort sort, int offset, int limit) throws SQLException {
+        long start = System.nanoTime();
+        StringBuilder sql = new StringBuilder("SELECT * FROM students WHERE 1=1");
+        List<Object> params = new ArrayList<>();
+        appendFilter(filter, sql, params);
+        sql.append(sort.orderBy()).append(" LIMIT ? OFFSET ?");
+        params.add(limit);
+        params.add(offset);
+        return record(PAGE_AT_TIMER, start, query(sql.toString(), params.toArray(), Database::rowToStudent));
+    }
+
+    public int countStudents(StudentFilter filter) throws SQLException {
+        long start = System.nanoTime();
+        StringBuilder sql = new StringBuilder("SELECT COUNT(*) FROM students WHERE 1=1");
+        List<Object> params = new ArrayList<>();
+        appendFilter(filter, sql, params);
+        int count = query(sql.toString(), params.toArray(), rs -> rs.getInt(1)).get(0);
+        COUNT_TIMER.record(start, 1);
+        return count;
+    }
+
+    /** Receives streamed rows; return false to stop the scan early. */
+    public interface StudentHandler {
+        boolean accept(Student s) throws IOException;
+    }
+
+    /**
+     * Streams matching students in list order to the handler straight from the cursor,
+     * without buffering the result. The time checked against the slow-query threshold includes
+     * the handler's, since the cursor stays open while it runs.
+     *
+     * @return number of rows handed to the handler
+     */
+    public long forEachStudent(StudentFilter filter, StudentHandler handler) throws SQLException, IOException {
+        long start = System.nanoTime();
         StringBuilder sql = new StringBuilder("SELECT * FROM students WHERE 1=1");
         List<Object> params = new ArrayList<>();
-        if (programFilter != null && !programFilter.isEmpty()) {
+        appendFilter(filter, sql, params);
+        sql.append(SORT_ORDER);
+        Object[] args = params.toArray();
+        String[] plan = new String[1];
+        long[] elapsed = new long[1];
+        try {
+            long streamed = pool().read(c -> {
+                long begin = System.nanoTime();
+                PreparedStatement ps = c.prepare(sql.toString());
+                bind(ps, args);
+                long rows = 0;
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        rows++;
+                        if (!handler.accept(rowToStudent(rs))) break;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                elapsed[0] = System.nanoTime() - begin;
+                if (slowQueryLog.isSlow(elapsed[0])) plan[0] = SlowQueryLog.explain(c.connection(), sql.toString(), args);
+                return rows;
+            });
+            STREAM_TIMER.record(start, streamed);
+            if (plan[0] != null) slowQueryLog.record(sql.toString(), args, streamed, elapsed[0], plan[0]);
+            return streamed;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void appendFilter(StudentFilter filter, StringBuilder sql, List<Object> params) {
+        if (filter.getProgram() != null) {
             sql.append(" AND program = ?");
-            params.add(programFilter);
+            params.add(filter.getProgram());
         }
-        if (yearFilter != null) {
+        if (filter.getYear() != null) {
             sql.append(" AND year = ?");
-            params.add(yearFilter);
+            params.add(filter.getYear());
+        }
+        String search = filter.getSearch();
+        if (search != null) {
+            String match = fullTextSearch ? toMatchExpression(search) : null;
+            if (match != null) {
+                sql.append(" AND rowid IN (SELECT rowid FROM students_fts WHERE students_fts MATCH ?)");
+                params.add(match);
+            } else {
+                sql.append(" AND (student_id LIKE ? OR first_name LIKE ? OR last_name LIKE ? OR email LIKE ?)");
+                String q = "%" + search + "%";
+                params.add(q);
+                params.add(q);
+                params.add(q);
+                params.add(q);
+            }
+        }
+    }
+
+    /**
+     * Best matches for a free-text query, most relevant first. Every word in the query must
+     * prefix-match a word in the ID, names or email; ID and name hits outrank email hits.
+     */
+    public List<Student> searchStudents(String search, int limit) throws SQLException {
+        return searchStudents(new StudentFilter(null, null, search), limit);
+    }
+
+    /**
+     * Like {@link #searchStudents(String, int)}, within the filter's program and year. Equal
+     * matches stay in list order. Without a full-text index, or without a word to match, the
+     * rows come back in list order.
+     */
+    public List<Student> searchStudents(StudentFilter filter, int limit) throws SQLException {
+        long start = System.nanoTime();
+        String search = filter.getSearch();
+        String match = fullTextSearch && search != null ? toMatchExpression(search) : null;
+        if (match == null) {
+            List<Student> all = listStudents(filter, StudentSort.DEFAULT);
+            return record(SEARCH_TIMER, start, all.size() > limit ? new ArrayList<>(all.subList(0, limit)) : all);
+        }
+        StringBuilder sql = new StringBuilder(
+            "SELECT s.* FROM students_fts f JOIN students s ON s.rowid = f.rowid WHERE students_fts MATCH ?");
+        List<Object> params = new ArrayList<>();
+        params.add(match);
+        if (filter.getProgram() != null) {
+            sql.append(" AND s.program = ?");
+            params.add(filter.getProgram());
         }
-        if (search != null && !search.isEmpty()) {
-            sql.append(" AND (student_id LIKE ? OR first_name LIKE ? OR last_name LIKE ? OR email LIKE ?)");
-            String q = "%" + search + "%";
-            params.add(q);
-            params.add(q);
-            params.add(q);
-            params.add(q);
+        if (filter.getYear() != null) {
+            sql.append(" AND s.year = ?");
+            params.add(filter.getYear());
         }
-        sql.append(" ORDER BY last_name, first_name, student_id");
+        sql.append(" ORDER BY bm25(students_fts, 10.0, 5.0, 5.0, 1.0), s.last_name, s.first_name, s.student_id LIMIT ?");
+        params.add(limit);
+        return record(SEARCH_TIMER, start, query(sql.toString(), params.toArray(), Database::rowToStudent));
+    }
+
+    public List<String> getPrograms() throws SQLException {
+        return record(PROGRAMS_TIMER, System.nanoTime(), query("SELECT program FROM student_counts GROUP BY program ORDER BY program", new Object[0],
+            rs -> rs.getString("program")));
+    }
+
+    public List<Object[]> countByProgram() throws SQLException {
+        return record(BY_PROGRAM_TIMER, System.nanoTime(), query("SELECT program, SUM(cnt) AS cnt FROM student_counts GROUP BY program ORDER BY program", new Object[0],
+            rs -> new Object[]{ rs.getString("program"), rs.getInt("cnt") }));
+    }
+
+    public List<Object[]> countByYear() throws SQLException {
+        return record(BY_YEAR_TIMER, System.nanoTime(), query("SELECT year, SUM(cnt) AS cnt FROM student_counts GROUP BY year ORDER BY year", new Object[0],
+            rs -> new Object[]{ rs.getInt("year"), rs.getInt("cnt") }));
+    }
+
+    /**
+     * Smallest and largest rowid in {@code students}, or null if the table is empty. Used to
+     * partition full-table scans.
+     */
+    public long[] rowidRange() throws SQLException {
+        long start = System.nanoTime();
+        long[] range = query("SELECT MIN(rowid), MAX(rowid) FROM students", new Object[0],
+            rs -> rs.getObject(1) == null ? null : new long[]{ rs.getLong(1), rs.getLong(2) }).get(0);
+        ROWID_RANGE_TIMER.record(start, 1);
+        return range;
+    }
+
+    /** Receives the aggregate-relevant columns of one student row. */
+    public interface GradeHandler {
+        void accept(String program, int year, Double gpa);
+    }
 
-        try (Connection c = connect(); PreparedStatement ps = c.prepareStatement(sql.toString())) {
-            int idx = 1;
-            for (Object o : params) {
-                if (o instanceof String) ps.setString(idx++, (String) o);
-                else if (o instanceof Integer) ps.setInt(idx++, (Integer) o);
+    /**
+     * Streams program, year and GPA for every row whose rowid lies in [fromRowid, toRowid].
+     * Ranges are read with a rowid seek, so disjoint ranges can be scanned in parallel.
+     */
+    public void scanGrades(long fromRowid, long toRowid, GradeHandler handler) throws SQLException {
+        long start = System.nanoTime();
+        String sql = "SELECT program, year, gpa FROM students WHERE rowid BETWEEN ? AND ?";
+        Object[] params = { fromRowid, toRowid };
+        String[] plan = new String[1];
+        long[] elapsed = new long[1];
+        long rows = pool().read(c -> {
+            long begin = System.nanoTime();
+            PreparedStatement ps = c.prepare(sql);
+            bind(ps, params);
+            long n = 0;
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    handler.accept(rs.getString(1), rs.getInt(2), (Double) rs.getObject(3));
+                    n++;
+                }
             }
+            elapsed[0] = System.nanoTime() - begin;
+            if (slowQueryLog.isSlow(elapsed[0])) plan[0] = SlowQueryLog.explain(c.connection(), sql, params);
+            return n;
+        });
+        SCAN_GRADES_TIMER.record(start, rows);
+        if (plan[0] != null) slowQueryLog.record(sql, params, rows, elapsed[0], plan[0]);
+    }
+
+    private static <T> List<T> record(Metrics.Timer timer, long start, List<T> rows) {
+        timer.record(start, rows.size());
+        return rows;
+    }
+
+    /** Maps the current row of a result set to a value. */
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private <T> List<T> query(String sql, Object[] params, RowMapper<T> mapper) throws SQLException {
+        String[] plan = new String[1];
+        long[] elapsed = new long[1];
+        List<T> rows = pool().read(c -> {
+            long start = System.nanoTime();
+            PreparedStatement ps = c.prepare(sql);
+            bind(ps, params);
+            List<T> out = new ArrayList<>();
             try (ResultSet rs = ps.executeQuery()) {
-                List<Student> list = new ArrayList<>();
-                while (rs.next()) list.add(rowToStudent(rs));
-                return list;
+                while (rs.next()) out.add(mapper.map(rs));
             }
+            elapsed[0] = System.nanoTime() - start;
+            if (slowQueryLog.isSlow(elapsed[0])) plan[0] = SlowQueryLog.explain(c.connection(), sql, params);
+            return out;
+        });
+        if (plan[0] != null) slowQueryLog.record(sql, params, rows.size(), elapsed[0], plan[0]);
+        return rows;
+    }
+
+    /**
+     * Queues work for the writer thread. It runs atomically: on failure none of its changes
+     * are kept, and other writes in the same group still commit.
+     */
+    private <T> CompletableFuture<T> write(ConnectionPool.SqlWork<T> work, Consumer<? super T> afterCommit) {
+        if (CHANGE_LOG_SIZE > 0) {
+            ConnectionPool.SqlWork<T> logged = work;
+            work = c -> {
+                T result = logged.run(c);
+                trimChangeLog(c);
+                return result;
+            };
         }
+        ExternalChangeWatcher w = watcher;
+        if (w != null) {
+            // Note which change-log entries this write adds before they commit, so a poll that
+            // runs right after the commit does not report them again.
+            long[] range = new long[2];
+            ConnectionPool.SqlWork<T> inner = work;
+            work = c -> {
+                long from = changeSeq(c);
+                T result = inner.run(c);
+                range[0] = from;
+                range[1] = changeSeq(c);
+                w.recordOwn(range[0], range[1]);
+                return result;
+            };
+            CompletableFuture<T> done = submit(work, afterCommit);
+            // The group rolled back, so those sequence numbers will be used again.
+            done.whenComplete((result, e) -> {
+                if (e != null) w.forgetOwn(range[0], range[1]);
+            });
+            return done;
+        }
+        return submit(work, afterCommit);
     }
 
-    public List<String> getPrograms() throws SQLException {
-        List<String> out = new ArrayList<>();
-        try (Connection c = connect(); Statement st = c.createStatement();
-             ResultSet rs = st.executeQuery("SELECT DISTINCT program FROM students ORDER BY program")) {
-            while (rs.next()) out.add(rs.getString("program"));
+    private <T> CompletableFuture<T> submit(ConnectionPool.SqlWork<T> work, Consumer<? super T> afterCommit) {
+        try {
+            return writer().submit(work, afterCommit);
+        } catch (SQLException e) {
+            CompletableFuture<T> failed = new CompletableFuture<>();
+            failed.completeExceptionally(e);
+            return failed;
         }
-        return out;
     }
 
-    public List<Object[]> countByProgram() throws SQLException {
-        List<Object[]> out = new ArrayList<>();
-        try (Connection c = connect(); Statement st = c.createStatement();
-             ResultSet rs = st.executeQuery("SELECT program, COUNT(*) AS cnt FROM students GROUP BY program ORDER BY program")) {
-            while (rs.next()) out.add(new Object[]{ rs.getString("program"), rs.getInt("cnt") });
+    /**
+     * Deletes change-log entries older than the newest {@link #CHANGE_LOG_SIZE}, as part of the
+     * write that pushed the log past its size, in steps of a tenth of the size so most writes
+     * only read the last sequence number. Entries an incremental backup set has not shipped yet
+     * are never deleted: with a backup set, {@link IncrementalBackup} alone compacts the log.
+     */
+    private void trimChangeLog(ConnectionPool.PooledConnection c) throws SQLException {
+        long keepFrom = changeSeq(c) - CHANGE_LOG_SIZE;
+        if (keepFrom - changeLogTrimmedThrough < Math.max(1, CHANGE_LOG_SIZE / 10)) return;
+        changeLogTrimmedThrough = keepFrom;
+        try (ResultSet rs = c.prepare("SELECT through FROM student_changes_shipped").executeQuery()) {
+            if (rs.next()) return;
+        }
+        PreparedStatement ps = c.prepare("DELETE FROM student_changes WHERE seq <= ?");
+        ps.setLong(1, keepFrom);
+        if (ps.executeUpdate() > 0) {
+            LOG.warning("Deleted change-log entries up to " + keepFrom + " that no incremental backup has shipped;"
+                + " only the newest " + CHANGE_LOG_SIZE + " changes are kept (-Dstudentrecords.changeLogSize).");
         }
-        return out;
     }
 
-    public List<Object[]> countByYear() throws SQLException {
-        List<Object[]> out = new ArrayList<>();
-        try (Connection c = connect(); Statement st = c.createStatement();
-             ResultSet rs = st.executeQuery("SELECT year, COUNT(*) AS cnt FROM students GROUP BY year ORDER BY year")) {
-            while (rs.next()) out.add(new Object[]{ rs.getInt("year"), rs.getInt("cnt") });
+    /**
+     * Records the time from queueing to commit once the write completes. Returns the same
+     * future, so callers see the write's own exception rather than a wrapped one.
+     */
+    private static CompletableFuture<Integer> timed(Metrics.Timer timer, CompletableFuture<Integer> future) {
+        long start = System.nanoTime();
+        future.whenComplete((rows, err) -> timer.record(start, rows != null ? rows : 0));
+        return future;
+    }
+
+    /** Waits for a queued write to commit, rethrowing its failure. */
+    private static <T> T await(CompletableFuture<T> future) throws SQLException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a write to commit", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) throw (SQLException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new SQLException(cause);
+        }
+    }
+
+    /**
+     * Queues one statement that changes a single student (or, for clears, all of them) and
+     * publishes the change once it commits.
+     *
+     * @param beforeId ID whose current row is read first as the event's before image, or null
+     */
+    private CompletableFuture<Integer> update(Metrics.Timer timer, StudentChangeEvent.Type change, String beforeId,
+                                              Student after, String sql, Object... params) {
+        String[] plan = new String[1];
+        long[] elapsed = new long[1];
+        Student[] before = new Student[1];
+        CompletableFuture<Integer> future = timed(timer, write(c -> {
+            if (beforeId != null) before[0] = findStudent(c, beforeId);
+            long start = System.nanoTime();
+            PreparedStatement ps = c.prepare(sql);
+            bind(ps, params);
+            int n;
+            try {
+                n = ps.executeUpdate();
+            } catch (SQLiteException e) {
+                if (change != StudentChangeEvent.Type.INSERTED
+                        || e.getResultCode() != SQLiteErrorCode.SQLITE_CONSTRAINT_PRIMARYKEY) throw e;
+                throw new SQLException("A student with ID '" + after.getId() + "' already exists. Use a unique ID.",
+                    e.getSQLState(), e.getErrorCode(), e);
+            }
+            elapsed[0] = System.nanoTime() - start;
+            if (slowQueryLog.isSlow(elapsed[0])) plan[0] = SlowQueryLog.explain(c.connection(), sql, params);
+            return n;
+        }, publishIf(change, before, after)));
+        future.thenAccept(rows -> {
+            if (plan[0] != null) slowQueryLog.record(sql, params, rows, elapsed[0], plan[0]);
+        });
+        return future;
+    }
+
+    private static Student findStudent(ConnectionPool.PooledConnection c, String studentId) throws SQLException {
+        PreparedStatement ps = c.prepare("SELECT * FROM students WHERE student_id=?");
+        ps.setString(1, studentId);
+        try (ResultSet rs = ps.executeQuery()) {
+            return rs.next() ? rowToStudent(rs) : null;
+        }
+    }
+
+    /**
+     * Whether a student belongs in the results of {@code filter}, decided in memory the same way
+     * the query would decide it. Used to place a changed row without re-running the query.
+     */
+    public boolean matches(StudentFilter filter, Student s) {
+        if (filter.getProgram() != null && !filter.getProgram().equals(s.getProgram())) return false;
+        if (filter.getYear() != null && filter.getYear() != s.getYear()) return false;
+        String search = filter.getSearch();
+        if (search == null) return true;
+        String[] fields = { s.getId(), s.getFirstName(), s.getLastName(), s.getEmail() };
+        if (fullTextSearch && toMatchExpression(search) != null) {
+            // Every query word must prefix a word of some field, as with "term"* in FTS5.
+            List<String> words = new ArrayList<>();
+            for (String f : fields) words.addAll(searchTerms(f));
+            for (String term : searchTerms(search)) {
+                boolean found = false;
+                for (String w : words) {
+                    if (w.startsWith(term)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) return false;
+            }
+            return true;
+        }
+        // LIKE '%search%' is case-insensitive for ASCII letters only.
+        String needle = asciiLowerCase(search);
+        for (String f : fields) {
+            if (asciiLowerCase(f).contains(needle)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Whether {@link #matches} is certain to agree with the query for this student. The full-text
+     * index folds accented and other non-ASCII letters in ways {@link #searchTerms} only
+     * approximates, so with a full-text search, only rows whose ID, names and email are plain
+     * ASCII qualify. LIKE searches and filters without a search always qualify.
+     */
+    boolean decidesInMemory(StudentFilter filter, Student s) {
+        if (filter.getSearch() == null || !fullTextSearch || toMatchExpression(filter.getSearch()) == null) return true;
+        return isAscii(s.getId()) && isAscii(s.getFirstName()) && isAscii(s.getLastName()) && isAscii(s.getEmail());
+    }
+
+    /**
+     * Whether every student matching {@code narrower} also matches {@code broader}, so the
+     * narrower results can be picked out of the broader ones with {@link #matches}. Holds when
+     * the broader filter leaves program or year open or has the same one, and its search is
+     * absent or a prefix of the narrower search, as when a search is typed one letter at a time.
+     * Searches with non-ASCII characters are never narrowed (see {@link #decidesInMemory}).
+     */
+    boolean narrows(StudentFilter broader, StudentFilter narrower) {
+        if (broader.getProgram() != null && !broader.getProgram().equals(narrower.getProgram())) return false;
+        if (broader.getYear() != null && !broader.getYear().equals(narrower.getYear())) return false;
+        String wide = broader.getSearch();
+        String narrow = narrower.getSearch();
+        if (wide == null) return true;
+        if (narrow == null) return false;
+        if (!isAscii(wide) || !isAscii(narrow)) return false;
+        boolean ftsWide = fullTextSearch && toMatchExpression(wide) != null;
+        boolean ftsNarrow = fullTextSearch && toMatchExpression(narrow) != null;
+        if (ftsWide != ftsNarrow) return false;
+        if (!ftsWide) return asciiLowerCase(narrow).contains(asciiLowerCase(wide));
+        // Each broader term must prefix a narrower term, which in turn prefixes a word of the row.
+        List<String> terms = searchTerms(narrow);
+        for (String w : searchTerms(wide)) {
+            boolean found = false;
+            for (String t : terms) {
+                if (t.startsWith(w)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) return false;
+        }
+        return true;
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+
+    private static String asciiLowerCase(String s) {
+        char[] chars = s.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            if (chars[i] >= 'A' && chars[i] <= 'Z') chars[i] += 'a' - 'A';
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Turns free text into an FTS5 prefix query, e.g. {@code "smi ann"} becomes
+     * {@code "smi"* "ann"*}. Returns null if the text has no letters or digits.
+     */
+    static String toMatchExpression(String search) {
+        StringBuilder out = new StringBuilder();
+        for (String term : searchTerms(search)) {
+            if (out.length() > 0) out.append(' ');
+            out.append('"').append(term).append("\"*");
+        }
+        return out.length() > 0 ? out.toString() : null;
+    }
+
+    /**
+     * Splits text into lower-case words the way the FTS5 unicode61 tokenizer does, including
+     * its removal of a single accent from a Latin letter, so "José" gives "jose". Exact for
+     * ASCII text; other letters are folded only approximately.
+     */
+    static List<String> searchTerms(String text) {
+        text = fold(text);
+        List<String> terms = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && start < 0) {
+                start = i;
+            } else if (!word && start >= 0) {
+                terms.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * Lower-cases text, reduces Latin letters with one accent to the bare letter and drops
+     * combining accents (U+0300 to U+036F) written as separate characters.
+     */
+    private static String fold(String text) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        if (isAscii(lower)) return lower;
+        StringBuilder out = new StringBuilder(lower.length());
+        for (int i = 0; i < lower.length(); ) {
+            int cp = lower.codePointAt(i);
+            int next = i + Character.charCount(cp);
+            if (cp >= 0x300 && cp <= 0x36F) {
+                i = next;
+                continue;
+            }
+            String decomposed = cp < 0x80 ? null : Normalizer.normalize(lower.substring(i, next), Normalizer.Form.NFD);
+            if (decomposed != null && decomposed.codePointCount(0, decomposed.length()) == 2
+                    && Character.UnicodeScript.of(decomposed.codePointAt(0)) == Character.UnicodeScript.LATIN
+                    && Character.getType(decomposed.codePointBefore(decomposed.length())) == Character.NON_SPACING_MARK) {
+                out.appendCodePoint(decomposed.codePointAt(0));
+            } else {
+                out.appendCodePoint(cp);
+            }
+            i = next;
+        }
+        return out.toString();
+    }
+
+    private static void bind(PreparedStatement ps, Object[] params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            ps.setObject(i + 1, params[i]);
         }
-        return out;
     }
 
     private static Student rowToStudent(ResultSet rs) throws SQLException {
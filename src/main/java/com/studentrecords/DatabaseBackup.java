@@ -0,0 +1,202 @@
+package com.studentrecords;
+
+import org.sqlite.SQLiteConnection;
+import org.sqlite.core.DB;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Online backup through the SQLite backup API. Pages are copied a step at a time on a
+ * dedicated connection. The source is only read-locked while a step runs, so the app keeps
+ * reading and writing during the backup. The copy is checked with {@code PRAGMA quick_check}
+ * before it replaces the destination, and a destination ending in {@code .gz} is
+ * gzip-compressed.
+ *
+ * <p>A write from another connection makes SQLite restart the copy, which keeps the snapshot
+ * consistent. After {@value #MAX_RESTARTS} restarts, this process's writes are held back until
+ * the copy finishes, so a busy database still gets backed up.
+ */
+public final class DatabaseBackup {
+    /** Pages copied per step; the source is unlocked between steps. */
+    private static final int PAGES_PER_STEP = 256;
+    /** Pause after each step to give queued writers a turn. */
+    private static final long STEP_PAUSE_MS = 2;
+    private static final int BUSY_RETRY_MS = 10;
+    private static final int BUSY_RETRIES = 500;
+    private static final int MAX_RESTARTS = 3;
+    private static final int COPY_BUFFER_SIZE = 1 << 16;
+
+    private static final Metrics.Timer BACKUP_TIMER = Metrics.timer("DatabaseBackup.backup");
+
+    private DatabaseBackup() {}
+
+    /** Backup progress callback; return false to cancel. */
+    public interface BackupProgress {
+        /**
+         * @param phase "Copying" while pages are copied, "Compressing" while the copy is gzipped
+         * @param done pages copied or bytes compressed so far
+         */
+        boolean update(String phase, long done, long total);
+    }
+
+    /**
+     * Writes a consistent copy of the database to {@code destination}. The destination is only
+     * replaced once the copy is complete and checked.
+     *
+     * <p>The backup API cannot be stopped part-way through, so a cancelled copy runs to the end
+     * without pauses and is then discarded with a {@link CancellationException}.
+     *
+     * @param progress optional
+     */
+    public static BackupResult backup(Database db, Path destination, BackupProgress progress)
+            throws SQLException, IOException {
+        long start = System.nanoTime();
+        Path target = destination.toAbsolutePath();
+        boolean compress = target.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz");
+        Path snapshot = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".partial");
+        try {
+            long[] pages = copy(db, snapshot, progress);
+            long lastChange = verify(snapshot);
+            if (compress) {
+                gzip(snapshot, target, progress);
+            } else {
+                Files.move(snapshot, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            long bytes = Files.size(target);
+            BACKUP_TIMER.record(start, 0);
+            BACKUP_TIMER.addBytes(bytes);
+            return new BackupResult(target, pages[0], pages[1], bytes, compress, lastChange,
+                System.nanoTime() - start);
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    /** @return total pages and number of restarts */
+    private static long[] copy(Database db, Path snapshot, BackupProgress progress) throws SQLException {
+        long[] state = new long[3]; // total pages, restarts, last remaining
+        state[2] = Long.MAX_VALUE;
+        boolean[] cancelled = new boolean[1];
+        boolean[] writesPaused = new boolean[1];
+        try (Connection conn = DriverManager.getConnection(db.getUrl())) {
+            DB source = ((SQLiteConnection) conn).getDatabase();
+            source.backup("main", snapshot.toString(), (remaining, pageCount) -> {
+                if (remaining > state[2]) state[1]++;
+                state[2] = remaining;
+                state[0] = pageCount;
+                if (progress != null && !cancelled[0]
+                        && !progress.update("Copying", pageCount - remaining, pageCount)) {
+                    cancelled[0] = true;
+                }
+                if (cancelled[0] || remaining == 0) return;
+                if (state[1] >= MAX_RESTARTS && !writesPaused[0]) {
+                    try {
+                        db.pauseWrites();
+                        writesPaused[0] = true;
+                    } catch (SQLException ignored) {
+                        // Closed meanwhile; nothing left to hold back.
+                    }
+                } else if (!writesPaused[0]) {
+                    pause();
+                }
+            }, BUSY_RETRY_MS, BUSY_RETRIES, PAGES_PER_STEP);
+        } finally {
+            if (writesPaused[0]) db.resumeWrites();
+        }
+        if (cancelled[0]) throw new CancellationException("Backup cancelled");
+        return new long[]{ state[0], state[1] };
+    }
+
+    private static void pause() {
+        try {
+            Thread.sleep(STEP_PAUSE_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Checks the copy's integrity and returns the last change-log sequence number it includes. */
+    private static long verify(Path snapshot) throws SQLException {
+        try (Connection conn = DriverManager.getConnection("jdbc:sqlite:" + snapshot);
+             Statement st = conn.createStatement()) {
+            try (ResultSet rs = st.executeQuery("PRAGMA quick_check")) {
+                String result = rs.next() ? rs.getString(1) : "no result";
+                if (!"ok".equalsIgnoreCase(result)) {
+                    throw new SQLException("Backup failed its integrity check: " + result);
+                }
+            }
+            return IncrementalBackup.lastSequence(st);
+        }
+    }
+
+    private static void gzip(Path source, Path target, BackupProgress progress) throws IOException {
+        long total = Files.size(source);
+        Path partial = target.resolveSibling(target.getFileName() + ".partial");
+        try {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(source), COPY_BUFFER_SIZE);
+                 OutputStream out = new GZIPOutputStream(Files.newOutputStream(partial), COPY_BUFFER_SIZE)) {
+                byte[] buf = new byte[COPY_BUFFER_SIZE];
+                long done = 0;
+                int n;
+                while ((n = in.read(buf)) > 0) {
+                    out.write(buf, 0, n);
+                    done += n;
+                    if (progress != null && !progress.update("Compressing", done, total)) {
+                        throw new CancellationException("Backup cancelled");
+                    }
+                }
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+    }
+
+    /** Outcome of one backup. */
+    public static final class BackupResult {
+        private final Path path;
+        private final long pages;
+        private final long restarts;
+        private final long bytes;
+        private final boolean compressed;
+        private final long lastChange;
+        private final long elapsedNanos;
+
+        BackupResult(Path path, long pages, long restarts, long bytes, boolean compressed, long lastChange,
+                     long elapsedNanos) {
+            this.path = path;
+            this.pages = pages;
+            this.restarts = restarts;
+            this.bytes = bytes;
+            this.compressed = compressed;
+            this.lastChange = lastChange;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Path getPath() { return path; }
+        public long getPages() { return pages; }
+        public long getRestarts() { return restarts; }
+        public long getBytes() { return bytes; }
+        public boolean isCompressed() { return compressed; }
+        /** Sequence number of the last {@code student_changes} entry in the copy, or 0. */
+        public long getLastChange() { return lastChange; }
+        public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+
+        public String summary() {
+            return String.format("Copied %,d page(s) to %s (%,d bytes%s) in %,d ms%s.",
+                pages, path, bytes, compressed ? ", compressed" : "", getElapsedMillis(),
+                restarts > 0 ? String.format(", restarted %d time(s) by concurrent writes", restarts) : "");
+        }
+    }
+}
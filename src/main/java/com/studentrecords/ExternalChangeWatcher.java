@@ -0,0 +1,119 @@
+package com.studentrecords;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Notices commits made by other processes sharing the database file and publishes them as
+ * {@link StudentChangeEvent}s. Each poll reads {@code PRAGMA data_version} on the writer
+ * connection, which only changes when a different connection commits, so a quiet database
+ * costs one pragma per interval. After a change, the new {@code student_changes} entries are
+ * read and turned into per-row events, skipping the ones this process wrote itself. If the
+ * entries are gone (compacted by a backup) or there are too many, one
+ * {@link StudentChangeEvent.Type#BULK} event asks views to reload instead.
+ */
+final class ExternalChangeWatcher implements AutoCloseable {
+    /** Poll interval, overridable with {@code -Dstudentrecords.watchMillis=...}. */
+    static final long DEFAULT_INTERVAL_MILLIS = Long.getLong("studentrecords.watchMillis", 1000L);
+    /** More external changes than this in one poll are reported as a single bulk change. */
+    private static final int MAX_EVENTS = 500;
+
+    private final Database db;
+    private final ScheduledExecutorService timer;
+    /** Change-log ranges (from, to] written by this process, keyed by from. */
+    private final Map<Long, Long> ownChanges = new ConcurrentSkipListMap<>();
+    private long dataVersion;
+    private long lastSeq;
+
+    ExternalChangeWatcher(Database db, long intervalMillis) throws SQLException {
+        this.db = db;
+        this.dataVersion = db.dataVersion();
+        this.lastSeq = db.lastChangeSeq();
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "database-watcher");
+            t.setDaemon(true);
+            return t;
+        });
+        timer.scheduleWithFixedDelay(this::poll, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Notes change-log entries this process is writing, so polls do not report them. Called on
+     * the writer thread before the commit; polls skip an entry only once it has committed.
+     */
+    void recordOwn(long from, long to) {
+        if (to > from) ownChanges.put(from, to);
+    }
+
+    /** Drops a range noted by {@link #recordOwn} whose write was rolled back. */
+    void forgetOwn(long from, long to) {
+        ownChanges.remove(from, to);
+    }
+
+    private void poll() {
+        try {
+            long version = db.dataVersion();
+            if (version == dataVersion) return;
+            dataVersion = version;
+            publishExternalChanges();
+        } catch (SQLException | RuntimeException ignored) {
+            // Closed or busy; the next poll tries again.
+        }
+    }
+
+    private void publishExternalChanges() throws SQLException {
+        long newest = db.lastChangeSeq();
+        skipOwnChanges(newest);
+        List<StudentChangeEvent> events = db.changesSince(lastSeq, MAX_EVENTS + 1);
+        long first = events.isEmpty() ? newest + 1 : events.get(0).getSeq();
+        boolean gap = first > lastSeq + 1 && !isOwn(lastSeq + 1, first - 1);
+        if (gap || events.size() > MAX_EVENTS) {
+            lastSeq = Math.max(lastSeq, newest);
+            db.publishChange(new StudentChangeEvent(StudentChangeEvent.Type.BULK, null, null));
+        } else {
+            for (StudentChangeEvent e : events) {
+                if (!isOwn(e.getSeq(), e.getSeq())) db.publishChange(e);
+                lastSeq = e.getSeq();
+            }
+        }
+        ownChanges.values().removeIf(to -> to <= lastSeq);
+    }
+
+    /**
+     * Advances past entries this process wrote that directly follow the last one seen, but not
+     * past {@code newest}: later entries of a range are not committed yet and may be rolled back.
+     */
+    private void skipOwnChanges(long newest) {
+        boolean moved = true;
+        while (moved) {
+            moved = false;
+            for (Map.Entry<Long, Long> r : ownChanges.entrySet()) {
+                long through = Math.min(r.getValue(), newest);
+                if (r.getKey() <= lastSeq && through > lastSeq) {
+                    lastSeq = through;
+                    moved = true;
+                }
+            }
+        }
+    }
+
+    /** Whether every entry in [from, to] was written by this process. */
+    private boolean isOwn(long from, long to) {
+        long covered = from - 1;
+        for (Map.Entry<Long, Long> r : ownChanges.entrySet()) {
+            if (r.getKey() <= covered && r.getValue() > covered) covered = r.getValue();
+            if (covered >= to) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,186 @@
+package com.studentrecords;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Single writer thread that runs every mutation. Work that queues up while a commit is in
+ * progress, plus anything arriving within an optional window after that, is committed together
+ * in one transaction. A burst of edits therefore pays for one sync instead of one each. Each
+ * piece of work runs in its own savepoint: if it fails, only its own changes are rolled back,
+ * and the rest of the group still commits. Futures complete after the commit, in submission
+ * order.
+ */
+final class GroupCommitWriter implements AutoCloseable {
+    /** Most pieces of work committed in one transaction. */
+    private static final int MAX_GROUP = 256;
+    private static final long CLOSE_TIMEOUT_MS = 30_000;
+
+    private static final Metrics.Timer COMMIT_TIMER = Metrics.timer("Database.commitGroup");
+
+    private final ConnectionPool pool;
+    private final BlockingQueue<Pending<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private volatile long windowNanos;
+    private volatile boolean closed;
+
+    GroupCommitWriter(ConnectionPool pool, long windowMillis) {
+        this.pool = pool;
+        setWindowMillis(windowMillis);
+        this.thread = new Thread(this::run, "database-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** How long the writer waits for more work after the first piece of a group arrives. */
+    void setWindowMillis(long millis) {
+        windowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, millis));
+    }
+
+    /**
+     * Queues work for the writer thread. The future completes with the work's result once its
+     * group has committed, or exceptionally if the work or the commit failed.
+     */
+    <T> CompletableFuture<T> submit(ConnectionPool.SqlWork<T> work) {
+        return submit(work, null);
+    }
+
+    /**
+     * Like {@link #submit(ConnectionPool.SqlWork)}, and also runs {@code afterCommit} with the
+     * result on the writer thread once the work has committed. Hooks run in commit order and
+     * before any future of the group completes.
+     */
+    <T> CompletableFuture<T> submit(ConnectionPool.SqlWork<T> work, Consumer<? super T> afterCommit) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (Thread.currentThread() == thread) {
+            // Waiting on this future from the writer thread would never return.
+            future.completeExceptionally(new IllegalStateException("Writes cannot be queued from the writer thread"));
+        } else if (closed) {
+            future.completeExceptionally(new SQLException("Database has been closed"));
+        } else {
+            queue.add(new Pending<>(work, afterCommit, future));
+        }
+        return future;
+    }
+
+    private void run() {
+        List<Pending<?>> group = new ArrayList<>();
+        while (!(closed && queue.isEmpty())) {
+            try {
+                Pending<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                group.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (group.size() < MAX_GROUP) {
+                    long wait = deadline - System.nanoTime();
+                    Pending<?> next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    group.add(next);
+                }
+            } catch (InterruptedException e) {
+                if (group.isEmpty()) continue;
+            }
+            commit(group);
+            group.clear();
+        }
+    }
+
+    private void commit(List<Pending<?>> group) {
+        long start = System.nanoTime();
+        try {
+            pool.write(c -> {
+                Connection conn = c.connection();
+                conn.setAutoCommit(false);
+                try {
+                    for (Pending<?> p : group) p.run(c);
+                    conn.commit();
+                    return null;
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            });
+        } catch (SQLException | RuntimeException e) {
+            for (Pending<?> p : group) p.fail(e);
+        }
+        COMMIT_TIMER.record(start, group.size());
+        for (Pending<?> p : group) p.afterCommit();
+        for (Pending<?> p : group) p.complete();
+    }
+
+    /**
+     * Stops accepting work, lets the writer finish what is queued, then stops the thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            thread.join(CLOSE_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Pending<?> p;
+        while ((p = queue.poll()) != null) {
+            p.fail(new SQLException("Database has been closed"));
+            p.complete();
+        }
+    }
+
+    /** One queued piece of work and the outcome reported to its caller. */
+    private static final class Pending<T> {
+        private final ConnectionPool.SqlWork<T> work;
+        private final Consumer<? super T> afterCommit;
+        private final CompletableFuture<T> future;
+        private T result;
+        private Throwable error;
+
+        Pending(ConnectionPool.SqlWork<T> work, Consumer<? super T> afterCommit, CompletableFuture<T> future) {
+            this.work = work;
+            this.afterCommit = afterCommit;
+            this.future = future;
+        }
+
+        /** Runs the work in a savepoint, rolling back only this work if it fails. */
+        void run(ConnectionPool.PooledConnection c) throws SQLException {
+            Connection conn = c.connection();
+            Savepoint sp = conn.setSavepoint();
+            try {
+                result = work.run(c);
+                conn.releaseSavepoint(sp);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback(sp);
+                conn.releaseSavepoint(sp);
+                error = e;
+            }
+        }
+
+        /** Marks the work failed because its group could not commit. */
+        void fail(Throwable e) {
+            if (error == null) error = e;
+        }
+
+        void afterCommit() {
+            if (error != null || afterCommit == null) return;
+            try {
+                afterCommit.accept(result);
+            } catch (RuntimeException ignored) {
+                // A failing hook must not affect the committed write or the rest of the group.
+            }
+        }
+
+        void complete() {
+            if (error != null) future.completeExceptionally(error);
+            else future.complete(result);
+        }
+    }
+}
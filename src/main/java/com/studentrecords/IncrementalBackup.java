@@ -0,0 +1,417 @@
+package com.studentrecords;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Incremental backups built on the {@code student_changes} log that {@link Database} keeps with
+ * triggers. A backup set is one directory holding:
+ * <ul>
+ *   <li>{@code base-<seq>-<millis>.db.gz}: a full snapshot that includes every change up to
+ *       {@code seq}, finished at {@code millis} (epoch milliseconds);</li>
+ *   <li>{@code changes-<from>-<to>.db}: the log entries {@code from..to}, as a small SQLite
+ *       file with the same {@code student_changes} table.</li>
+ * </ul>
+ * The increments form an unbroken sequence from the first snapshot onward. Once entries are
+ * shipped, they are deleted from the live log, and the last shipped sequence number is recorded
+ * in it. From the first snapshot on, {@link Database} stops trimming the log by size, so
+ * entries stay until they are shipped however many changes pile up between increments.
+ * {@link #restore} replays a snapshot plus increments up to a chosen time, and {@link #prune}
+ * drops the oldest snapshots and the increments that only they need.
+ *
+ * <pre>
+ * java -cp student-records-manager-1.0.0-all.jar com.studentrecords.IncrementalBackup full student_records.db backups
+ * java -cp student-records-manager-1.0.0-all.jar com.studentrecords.IncrementalBackup incremental student_records.db backups
+ * java -cp student-records-manager-1.0.0-all.jar com.studentrecords.IncrementalBackup restore backups restored.db 2024-09-01T14:30
+ * java -cp student-records-manager-1.0.0-all.jar com.studentrecords.IncrementalBackup prune backups 3
+ * </pre>
+ */
+public final class IncrementalBackup {
+    private static final Pattern BASE_NAME = Pattern.compile("base-(\\d+)-(\\d+)\\.db\\.gz");
+    private static final Pattern CHANGES_NAME = Pattern.compile("changes-(\\d+)-(\\d+)\\.db");
+    private static final int BUSY_TIMEOUT_MS = 5000;
+    private static final int COPY_BUFFER_SIZE = 1 << 16;
+
+    private static final Metrics.Timer SHIP_TIMER = Metrics.timer("IncrementalBackup.ship");
+    private static final Metrics.Timer RESTORE_TIMER = Metrics.timer("IncrementalBackup.restore");
+
+    private IncrementalBackup() {}
+
+    /**
+     * Takes a new full snapshot into the backup set. If the set already has a snapshot,
+     * pending changes are shipped first so the increments stay unbroken.
+     */
+    public static DatabaseBackup.BackupResult full(Database db, Path dir, DatabaseBackup.BackupProgress progress)
+            throws SQLException, IOException {
+        Files.createDirectories(dir);
+        if (!list(dir, BASE_NAME).isEmpty()) ship(db, dir);
+        Path staging = dir.resolve("base.partial.db.gz");
+        DatabaseBackup.BackupResult result = DatabaseBackup.backup(db, staging, progress);
+        Path base = dir.resolve("base-" + result.getLastChange() + "-" + System.currentTimeMillis() + ".db.gz");
+        Files.move(staging, base, StandardCopyOption.ATOMIC_MOVE);
+        if (list(dir, CHANGES_NAME).isEmpty()) compactLog(db, result.getLastChange());
+        else recordShipped(db, result.getLastChange());
+        return new DatabaseBackup.BackupResult(base, result.getPages(), result.getRestarts(), result.getBytes(),
+            true, result.getLastChange(), result.getElapsedMillis() * 1_000_000);
+    }
+
+    /**
+     * Writes every change logged since the last backup into a new increment file, then deletes
+     * those entries from the live log.
+     *
+     * @return the new increment, or null if nothing changed
+     * @throws IOException if the set has no snapshot, or the log no longer holds every change
+     *         since the last backup (e.g. it was shipped to another set); take a full backup then
+     */
+    public static Path ship(Database db, Path dir) throws SQLException, IOException {
+        long start = System.nanoTime();
+        long shipped = shippedThrough(dir);
+        try (Connection conn = open(db.getUrl()); Statement st = conn.createStatement()) {
+            long oldest = queryLong(st, "SELECT MIN(seq) FROM student_changes");
+            long last = lastSequence(st);
+            if (oldest > shipped + 1 || (oldest == 0 && last > shipped)) {
+                throw new IOException("The change log no longer holds changes " + (shipped + 1) + " to "
+                    + (oldest > 0 ? oldest - 1 : last) + "; take a full backup first.");
+            }
+            if (last <= shipped) {
+                SHIP_TIMER.record(start, 0);
+                return null;
+            }
+
+            Path partial = dir.resolve("changes.partial.db");
+            Files.deleteIfExists(partial);
+            long to;
+            long rows;
+            try (PreparedStatement attach = conn.prepareStatement("ATTACH DATABASE ? AS inc")) {
+                attach.setString(1, partial.toString());
+                attach.execute();
+            }
+            try {
+                // One statement, so it copies a consistent set of entries.
+                st.execute("CREATE TABLE inc.student_changes AS SELECT * FROM main.student_changes"
+                    + " WHERE seq > " + shipped + " ORDER BY seq");
+                to = queryLong(st, "SELECT MAX(seq) FROM inc.student_changes");
+                rows = queryLong(st, "SELECT COUNT(*) FROM inc.student_changes");
+            } finally {
+                st.execute("DETACH DATABASE inc");
+            }
+            Path increment = dir.resolve("changes-" + (shipped + 1) + "-" + to + ".db");
+            Files.move(partial, increment, StandardCopyOption.ATOMIC_MOVE);
+            compactLog(conn, to);
+            SHIP_TIMER.record(start, rows);
+            SHIP_TIMER.addBytes(Files.size(increment));
+            return increment;
+        }
+    }
+
+    /**
+     * Rebuilds the database as it was at {@code upToMillis} (epoch milliseconds) into
+     * {@code target}. The newest snapshot finished by then is replayed forward with the logged
+     * changes up to that time.
+     */
+    public static RestoreResult restore(Path dir, Path target, long upToMillis) throws SQLException, IOException {
+        long start = System.nanoTime();
+        Path base = null;
+        long baseSeq = 0;
+        for (Path p : list(dir, BASE_NAME)) {
+            if (number(p, BASE_NAME, 2) <= upToMillis) {
+                base = p;
+                baseSeq = number(p, BASE_NAME, 1);
+            }
+        }
+        if (base == null) throw new IOException("No snapshot in " + dir + " was taken by the requested time.");
+
+        Path partial = target.resolveSibling(target.getFileName() + ".partial");
+        long applied;
+        try {
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(base), COPY_BUFFER_SIZE)) {
+                Files.copy(in, partial, StandardCopyOption.REPLACE_EXISTING);
+            }
+            try (Connection conn = open("jdbc:sqlite:" + partial); Statement st = conn.createStatement()) {
+                // Replayed entries are copied into the log as they are, not logged again.
+                for (String op : new String[]{ "ai", "au", "ad" }) st.execute("DROP TRIGGER IF EXISTS student_changes_" + op);
+                // The restored copy belongs to no backup set yet.
+                st.execute("DROP TABLE IF EXISTS student_changes_shipped");
+                // ATTACH is not allowed inside a transaction; the scratch copy needs none anyway.
+                copyIncrements(conn, dir, baseSeq, upToMillis);
+                conn.setAutoCommit(false);
+                try {
+                    applied = replay(conn, baseSeq);
+                    conn.commit();
+                } catch (SQLException | RuntimeException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+            // Recreates the change-log triggers.
+            Database restored = new Database(partial.toString());
+            try {
+                restored.init();
+            } finally {
+                restored.close();
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+        RESTORE_TIMER.record(start, applied);
+        return new RestoreResult(target, base, applied, System.nanoTime() - start);
+    }
+
+    /** Copies logged changes after {@code baseSeq} and up to the given time into the restored log. */
+    private static void copyIncrements(Connection conn, Path dir, long baseSeq, long upToMillis)
+            throws SQLException, IOException {
+        long covered = baseSeq;
+        for (Path p : list(dir, CHANGES_NAME)) {
+            long from = number(p, CHANGES_NAME, 1);
+            long to = number(p, CHANGES_NAME, 2);
+            if (to <= covered) continue;
+            if (from > covered + 1) {
+                throw new IOException("Changes " + (covered + 1) + " to " + (from - 1) + " are missing from " + dir + ".");
+            }
+            try (PreparedStatement attach = conn.prepareStatement("ATTACH DATABASE ? AS inc")) {
+                attach.setString(1, p.toString());
+                attach.execute();
+            }
+            boolean reachedEnd;
+            try (Statement st = conn.createStatement()) {
+                st.execute("INSERT INTO main.student_changes SELECT * FROM inc.student_changes"
+                    + " WHERE seq > " + covered + " AND changed_at <= " + upToMillis + " ORDER BY seq");
+                reachedEnd = queryLong(st, "SELECT COUNT(*) FROM inc.student_changes WHERE changed_at > " + upToMillis) > 0;
+            } finally {
+                try (Statement st = conn.createStatement()) {
+                    st.execute("DETACH DATABASE inc");
+                }
+            }
+            if (reachedEnd) return;
+            covered = to;
+        }
+    }
+
+    /** Applies the log entries after {@code baseSeq} to {@code students} in order. */
+    private static long replay(Connection conn, long baseSeq) throws SQLException {
+        String[] columns = { "student_id", "first_name", "last_name", "email", "program", "year", "gpa", "notes" };
+        StringBuilder select = new StringBuilder("SELECT op, json_extract(before, '$.student_id')");
+        for (String c : columns) select.append(", json_extract(after, '$.").append(c).append("')");
+        select.append(" FROM student_changes WHERE seq > ? ORDER BY seq");
+
+        long applied = 0;
+        try (PreparedStatement changes = conn.prepareStatement(select.toString());
+             PreparedStatement upsert = conn.prepareStatement(
+                 "INSERT INTO students (student_id, first_name, last_name, email, program, year, gpa, notes)" +
+                 " VALUES (?,?,?,?,?,?,?,?) ON CONFLICT(student_id) DO UPDATE SET first_name=excluded.first_name," +
+                 " last_name=excluded.last_name, email=excluded.email, program=excluded.program," +
+                 " year=excluded.year, gpa=excluded.gpa, notes=excluded.notes");
+             PreparedStatement update = conn.prepareStatement(
+                 "UPDATE students SET student_id=?, first_name=?, last_name=?, email=?, program=?, year=?, gpa=?," +
+                 " notes=? WHERE student_id=?");
+             PreparedStatement delete = conn.prepareStatement("DELETE FROM students WHERE student_id=?")) {
+            changes.setLong(1, baseSeq);
+            try (ResultSet rs = changes.executeQuery()) {
+                while (rs.next()) {
+                    String op = rs.getString(1);
+                    if ("D".equals(op)) {
+                        delete.setString(1, rs.getString(2));
+                        delete.executeUpdate();
+                    } else {
+                        PreparedStatement ps = "I".equals(op) ? upsert : update;
+                        for (int i = 0; i < columns.length; i++) ps.setObject(i + 1, rs.getObject(i + 3));
+                        if (ps == update) ps.setString(columns.length + 1, rs.getString(2));
+                        ps.executeUpdate();
+                    }
+                    applied++;
+                }
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Keeps the newest {@code keep} snapshots and deletes older ones, along with increments
+     * that end before the oldest kept snapshot.
+     *
+     * @return number of files deleted
+     */
+    public static int prune(Path dir, int keep) throws IOException {
+        if (keep < 1) throw new IllegalArgumentException("At least one snapshot must be kept");
+        List<Path> bases = list(dir, BASE_NAME);
+        if (bases.size() <= keep) return 0;
+        int deleted = 0;
+        for (Path p : bases.subList(0, bases.size() - keep)) {
+            Files.delete(p);
+            deleted++;
+        }
+        long oldestKept = number(bases.get(bases.size() - keep), BASE_NAME, 1);
+        for (Path p : list(dir, CHANGES_NAME)) {
+            if (number(p, CHANGES_NAME, 2) <= oldestKept) {
+                Files.delete(p);
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Last change-log sequence number the set holds: the end of the newest increment, or the
+     * newest snapshot's if no increment has been shipped since.
+     */
+    private static long shippedThrough(Path dir) throws IOException {
+        List<Path> bases = list(dir, BASE_NAME);
+        if (bases.isEmpty()) throw new IOException("No full backup in " + dir + "; take one first.");
+        long through = number(bases.get(bases.size() - 1), BASE_NAME, 1);
+        for (Path p : list(dir, CHANGES_NAME)) through = Math.max(through, number(p, CHANGES_NAME, 2));
+        return through;
+    }
+
+    /**
+     * Deletes log entries up to and including {@code seq}, which the backup set now holds, and
+     * records {@code seq} as shipped so {@link Database} keeps everything after it.
+     */
+    private static void compactLog(Database db, long seq) throws SQLException {
+        try (Connection conn = open(db.getUrl())) {
+            compactLog(conn, seq);
+        }
+    }
+
+    private static void compactLog(Connection conn, long seq) throws SQLException {
+        recordShipped(conn, seq);
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM student_changes WHERE seq <= ?")) {
+            ps.setLong(1, seq);
+            ps.executeUpdate();
+        }
+    }
+
+    private static void recordShipped(Database db, long seq) throws SQLException {
+        try (Connection conn = open(db.getUrl())) {
+            recordShipped(conn, seq);
+        }
+    }
+
+    private static void recordShipped(Connection conn, long seq) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("INSERT INTO student_changes_shipped(id, through) VALUES (1, ?)"
+                + " ON CONFLICT(id) DO UPDATE SET through = MAX(through, excluded.through)")) {
+            ps.setLong(1, seq);
+            ps.executeUpdate();
+        }
+    }
+
+    /** Last sequence number handed out by the change log, including deleted entries; 0 if none. */
+    static long lastSequence(Statement st) throws SQLException {
+        try {
+            return queryLong(st, "SELECT seq FROM sqlite_sequence WHERE name = 'student_changes'");
+        } catch (SQLException e) {
+            return 0; // no AUTOINCREMENT table yet
+        }
+    }
+
+    private static long queryLong(Statement st, String sql) throws SQLException {
+        try (ResultSet rs = st.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static Connection open(String url) throws SQLException {
+        Connection conn = DriverManager.getConnection(url);
+        try (Statement st = conn.createStatement()) {
+            st.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS);
+        }
+        return conn;
+    }
+
+    /** Files in the set matching the pattern, in ascending order of their first number. */
+    private static List<Path> list(Path dir, Pattern pattern) throws IOException {
+        List<Path> out = new ArrayList<>();
+        if (!Files.isDirectory(dir)) return out;
+        try (Stream<Path> files = Files.list(dir)) {
+            files.filter(p -> pattern.matcher(p.getFileName().toString()).matches()).forEach(out::add);
+        }
+        out.sort(Comparator.comparingLong((Path p) -> number(p, pattern, 1)).thenComparingLong(p -> number(p, pattern, 2)));
+        return out;
+    }
+
+    private static long number(Path p, Pattern pattern, int group) {
+        Matcher m = pattern.matcher(p.getFileName().toString());
+        if (!m.matches()) throw new IllegalArgumentException(p.toString());
+        return Long.parseLong(m.group(group));
+    }
+
+    /** Outcome of one restore. */
+    public static final class RestoreResult {
+        private final Path path;
+        private final Path base;
+        private final long applied;
+        private final long elapsedNanos;
+
+        RestoreResult(Path path, Path base, long applied, long elapsedNanos) {
+            this.path = path;
+            this.base = base;
+            this.applied = applied;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Path getPath() { return path; }
+        public Path getBase() { return base; }
+        public long getApplied() { return applied; }
+        public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+
+        public String summary() {
+            return String.format("Restored %s from %s plus %,d change(s) in %,d ms.",
+                path, base.getFileName(), applied, getElapsedMillis());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        String usage = "Usage: IncrementalBackup full|incremental <database> <backup-dir>\n"
+            + "       IncrementalBackup restore <backup-dir> <target.db> [yyyy-MM-ddTHH:mm[:ss]]\n"
+            + "       IncrementalBackup prune <backup-dir> <snapshots-to-keep>";
+        if (args.length < 3) {
+            System.err.println(usage);
+            System.exit(2);
+        }
+        switch (args[0]) {
+            case "full":
+            case "incremental": {
+                Database db = new Database(Paths.get(args[1]).toAbsolutePath().toString());
+                try {
+                    db.init();
+                    Path dir = Paths.get(args[2]);
+                    if (args[0].equals("full")) {
+                        System.out.println(full(db, dir, null).summary());
+                    } else {
+                        Path increment = ship(db, dir);
+                        System.out.println(increment == null ? "No changes since the last backup." : "Wrote " + increment);
+                    }
+                } finally {
+                    db.close();
+                }
+                break;
+            }
+            case "restore": {
+                long upTo = args.length > 3
+                    ? LocalDateTime.parse(args[3]).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                    : System.currentTimeMillis();
+                System.out.println(restore(Paths.get(args[1]), Paths.get(args[2]), upTo).summary());
+                break;
+            }
+            case "prune":
+                System.out.println("Deleted " + prune(Paths.get(args[1]), Integer.parseInt(args[2])) + " file(s).");
+                break;
+            default:
+                System.err.println(usage);
+                System.exit(2);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.studentrecords;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with log-linear buckets: exact below 32 ns, then 16 buckets per
+ * power of two, so any recorded value is reported within about 6%. Safe to record from many
+ * threads at once; reads are a consistent-enough snapshot for reporting.
+ */
+public final class LatencyHistogram {
+    private static final int LINEAR_LIMIT = 32;
+    private static final int SUB_BUCKETS = 16;
+    private static final int BUCKETS = LINEAR_LIMIT + (63 - 5) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        counts.incrementAndGet(bucket(nanos));
+        total.incrementAndGet();
+        sum.addAndGet(nanos);
+        long m;
+        while (nanos > (m = max.get()) && !max.compareAndSet(m, nanos)) {
+            // retry until our value is stored or a larger one wins
+        }
+    }
+
+    public long getCount() {
+        return total.get();
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    public double getMeanNanos() {
+        long n = total.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * Smallest bucket bound at or below which the given fraction of recorded values fall,
+     * e.g. {@code 0.99} for p99. Returns 0 when empty.
+     */
+    public long percentileNanos(double fraction) {
+        long n = total.get();
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(fraction * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    /** Adds another histogram's counts to this one. */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = other.counts.get(i);
+            if (c != 0) counts.addAndGet(i, c);
+        }
+        total.addAndGet(other.total.get());
+        sum.addAndGet(other.sum.get());
+        long m;
+        long otherMax = other.max.get();
+        while (otherMax > (m = max.get()) && !max.compareAndSet(m, otherMax)) {
+            // retry
+        }
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        total.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Counts per power-of-two millisecond range (under 1 ms, 1–2 ms, 2–4 ms, ...) up to the
+     * largest recorded value, for printing a coarse distribution.
+     */
+    public long[] millisecondRanges() {
+        int ranges = 1;
+        while ((1_000_000L << (ranges - 1)) <= max.get() && ranges < 40) ranges++;
+        long[] out = new long[ranges];
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = counts.get(i);
+            if (c == 0) continue;
+            long ms = lowerBound(i) / 1_000_000L;
+            int r = ms == 0 ? 0 : 64 - Long.numberOfLeadingZeros(ms);
+            out[Math.min(r, ranges - 1)] += c;
+        }
+        return out;
+    }
+
+    static int bucket(long value) {
+        if (value < LINEAR_LIMIT) return (int) value;
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - 4)) - SUB_BUCKETS;
+        return LINEAR_LIMIT + (exp - 5) * SUB_BUCKETS + sub;
+    }
+
+    static long lowerBound(int bucket) {
+        if (bucket < LINEAR_LIMIT) return bucket;
+        int exp = (bucket - LINEAR_LIMIT) / SUB_BUCKETS + 5;
+        int sub = (bucket - LINEAR_LIMIT) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (exp - 4);
+    }
+
+    private static long upperBound(int bucket) {
+        return bucket + 1 < BUCKETS ? lowerBound(bucket + 1) - 1 : Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,282 @@
+package com.studentrecords;
+
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Headless load test: N threads replay a weighted mix of the calls the main view makes
+ * (search, filter, add, edit, delete) against one database for a fixed time, then print
+ * throughput and latency percentiles per operation and a latency histogram.
+ *
+ * <pre>
+ * java -cp student-records-manager-1.0.0-all.jar com.studentrecords.LoadDriver roster.db \
+ *      --threads 8 --seconds 60 --warmup 10 --mix search=40,filter=25,add=15,edit=15,delete=5
+ * </pre>
+ * Searches and filters count first and then load either the whole result or its first page,
+ * as the main view does. Deletes only remove rows added during the run; while there are none,
+ * a delete slot performs an add instead. Generate the database with {@link RosterGenerator}.
+ */
+public final class LoadDriver {
+
+    enum Operation { SEARCH, FILTER, ADD, EDIT, DELETE }
+
+    /** Results up to this size are loaded whole, larger ones a page at a time (as in the main view). */
+    private static final int IN_MEMORY_LIMIT = 5000;
+    private static final int SAMPLE_SIZE = 1000;
+    private static final long REPORT_INTERVAL_MS = 5000;
+
+    private final Database db;
+    private final int threads;
+    private final long warmupMillis;
+    private final long measureMillis;
+    private final int[] weights = new int[Operation.values().length];
+    private final long seed;
+    private final RosterGenerator generator;
+
+    private final EnumMap<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private final EnumMap<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+    private final EnumMap<Operation, AtomicReference<String>> firstError = new EnumMap<>(Operation.class);
+    private final ConcurrentLinkedQueue<String> added = new ConcurrentLinkedQueue<>();
+    private final AtomicLong nextAdd = new AtomicLong();
+    private final String runTag = Long.toString(System.currentTimeMillis() % 46_656L, 36);
+
+    private String[] ids;
+    private String[] searchTerms;
+    private String[] programs;
+    private volatile boolean recording;
+
+    LoadDriver(Database db, int threads, long warmupMillis, long measureMillis, Map<Operation, Integer> mix, long seed) {
+        this.db = db;
+        this.threads = threads;
+        this.warmupMillis = warmupMillis;
+        this.measureMillis = measureMillis;
+        this.seed = seed;
+        this.generator = new RosterGenerator(seed);
+        for (Operation op : Operation.values()) {
+            weights[op.ordinal()] = mix.getOrDefault(op, 0);
+            latencies.put(op, new LatencyHistogram());
+            errors.put(op, new AtomicLong());
+            firstError.put(op, new AtomicReference<>());
+        }
+    }
+
+    /** Loads the ID list and samples search terms and programs from the data. */
+    void prepare() throws SQLException {
+        ids = db.getStudentIds().toArray(new String[0]);
+        if (ids.length == 0) throw new SQLException("The database is empty; generate a roster with RosterGenerator first.");
+        Arrays.sort(ids);
+        SplittableRandom r = new SplittableRandom(seed);
+        Set<String> terms = new LinkedHashSet<>();
+        for (int i = 0; i < Math.min(SAMPLE_SIZE, ids.length); i++) {
+            Student s = db.getStudent(ids[r.nextInt(ids.length)]);
+            if (s == null) continue;
+            terms.add(s.getLastName());
+            if (s.getFirstName().length() >= 3) terms.add(s.getFirstName().substring(0, 3));
+        }
+        searchTerms = terms.toArray(new String[0]);
+        programs = db.getPrograms().toArray(new String[0]);
+    }
+
+    /** Runs warmup then measurement and returns the measured wall time in nanoseconds. */
+    long run() throws InterruptedException {
+        long start = System.currentTimeMillis();
+        long measureStart = start + warmupMillis;
+        long end = measureStart + measureMillis;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            SplittableRandom r = new SplittableRandom(seed + 1 + t);
+            Thread worker = new Thread(() -> {
+                try {
+                    while (System.currentTimeMillis() < end) step(r);
+                } finally {
+                    done.countDown();
+                }
+            }, "load-driver-" + t);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        long measuredFrom = 0;
+        long nextReport = measureStart + REPORT_INTERVAL_MS;
+        while (!done.await(100, TimeUnit.MILLISECONDS)) {
+            long now = System.currentTimeMillis();
+            if (!recording && now >= measureStart) {
+                recording = true;
+                measuredFrom = System.nanoTime();
+                System.out.println("Warmup finished, measuring...");
+            }
+            if (now >= nextReport && now < end) {
+                System.out.printf("  %,d s: %,d operations%n", (now - measureStart) / 1000, totalOperations());
+                nextReport += REPORT_INTERVAL_MS;
+            }
+        }
+        return measuredFrom == 0 ? 0 : System.nanoTime() - measuredFrom;
+    }
+
+    private void step(SplittableRandom r) {
+        Operation op = pick(r);
+        if (op == Operation.DELETE && added.isEmpty()) op = Operation.ADD;
+        long start = System.nanoTime();
+        try {
+            execute(op, r);
+            if (recording) latencies.get(op).record(System.nanoTime() - start);
+        } catch (SQLException | RuntimeException e) {
+            if (recording) errors.get(op).incrementAndGet();
+            firstError.get(op).compareAndSet(null, e.toString());
+        }
+    }
+
+    private Operation pick(SplittableRandom r) {
+        int total = 0;
+        for (int w : weights) total += w;
+        int n = r.nextInt(total);
+        for (Operation op : Operation.values()) {
+            n -= weights[op.ordinal()];
+            if (n < 0) return op;
+        }
+        return Operation.SEARCH;
+    }
+
+    private void execute(Operation op, SplittableRandom r) throws SQLException {
+        switch (op) {
+            case SEARCH:
+                show(new StudentFilter(null, null, searchTerms[r.nextInt(searchTerms.length)]));
+                break;
+            case FILTER:
+                show(new StudentFilter(programs[r.nextInt(programs.length)], r.nextBoolean() ? 1 + r.nextInt(6) : null, null));
+                break;
+            case ADD: {
+                long n = nextAdd.getAndIncrement();
+                Student s = generator.student(r.nextInt(ids.length));
+                String id = "L" + runTag + "_" + n;
+                db.addStudent(new Student(id, s.getFirstName(), s.getLastName(), s.getEmail(),
+                    s.getProgram(), s.getYear(), s.getGpa(), s.getNotes()));
+                added.add(id);
+                break;
+            }
+            case EDIT: {
+                String id = ids[r.nextInt(ids.length)];
+                Student s = db.getStudent(id);
+                if (s == null) return;
+                Double gpa = Math.round(r.nextDouble() * 400) / 100.0;
+                db.updateStudent(id, new Student(id, s.getFirstName(), s.getLastName(), s.getEmail(),
+                    s.getProgram(), s.getYear(), gpa, s.getNotes()));
+                break;
+            }
+            case DELETE: {
+                String id = added.poll();
+                if (id != null) db.deleteStudent(id);
+                break;
+            }
+        }
+    }
+
+    private void show(StudentFilter filter) throws SQLException {
+        int count = db.countStudents(filter);
+        if (count > IN_MEMORY_LIMIT) db.page(filter, null, StudentPageCache.PAGE_SIZE);
+        else db.listStudents(filter);
+    }
+
+    private long totalOperations() {
+        long n = 0;
+        for (LatencyHistogram h : latencies.values()) n += h.getCount();
+        return n;
+    }
+
+    void printReport(long measuredNanos) {
+        double seconds = Math.max(measuredNanos / 1e9, 1e-3);
+        LatencyHistogram all = new LatencyHistogram();
+        System.out.println();
+        System.out.printf("%-8s %10s %8s %10s %9s %9s %9s %9s %9s %9s%n",
+            "op", "count", "errors", "ops/s", "mean ms", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Operation op : Operation.values()) {
+            LatencyHistogram h = latencies.get(op);
+            if (h.getCount() == 0 && errors.get(op).get() == 0) continue;
+            all.add(h);
+            printRow(op.name().toLowerCase(Locale.ROOT), h, errors.get(op).get(), seconds);
+        }
+        long totalErrors = 0;
+        for (AtomicLong e : errors.values()) totalErrors += e.get();
+        printRow("total", all, totalErrors, seconds);
+
+        System.out.println();
+        System.out.println("Latency histogram (all operations):");
+        long[] ranges = all.millisecondRanges();
+        long peak = 1;
+        for (long c : ranges) peak = Math.max(peak, c);
+        for (int i = 0; i < ranges.length; i++) {
+            String label = i == 0 ? "< 1 ms" : (1L << (i - 1)) + "-" + (1L << i) + " ms";
+            int bar = (int) Math.round(50.0 * ranges[i] / peak);
+            System.out.printf("  %14s %10d %s%n", label, ranges[i], repeat('#', bar));
+        }
+
+        for (Operation op : Operation.values()) {
+            String err = firstError.get(op).get();
+            if (err != null) System.out.println("First " + op.name().toLowerCase(Locale.ROOT) + " error: " + err);
+        }
+    }
+
+    private static void printRow(String label, LatencyHistogram h, long errors, double seconds) {
+        System.out.printf("%-8s %,10d %,8d %,10.1f %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+            label, h.getCount(), errors, h.getCount() / seconds, h.getMeanNanos() / 1e6,
+            h.percentileNanos(0.50) / 1e6, h.percentileNanos(0.90) / 1e6, h.percentileNanos(0.99) / 1e6,
+            h.percentileNanos(0.999) / 1e6, h.getMaxNanos() / 1e6);
+    }
+
+    private static String repeat(char ch, int n) {
+        char[] chars = new char[n];
+        Arrays.fill(chars, ch);
+        return new String(chars);
+    }
+
+    /** Parses {@code search=40,filter=25,...}; operations not listed get weight 0. */
+    static Map<Operation, Integer> parseMix(String spec) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String part : spec.split(",")) {
+            String[] kv = part.trim().split("=");
+            if (kv.length != 2) throw new IllegalArgumentException("Bad mix entry: " + part);
+            int weight = Integer.parseInt(kv[1].trim());
+            if (weight < 0) throw new IllegalArgumentException("Negative weight: " + part);
+            mix.put(Operation.valueOf(kv[0].trim().toUpperCase(Locale.ROOT)), weight);
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("The operation mix has no positive weights");
+        }
+        return mix;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: LoadDriver <database> [--threads N] [--seconds S] [--warmup S] "
+                + "[--mix search=40,filter=25,add=15,edit=15,delete=5] [--seed N]");
+            System.exit(2);
+        }
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) throw new IllegalArgumentException("Unexpected argument: " + args[i]);
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        int threads = Integer.parseInt(options.getOrDefault("threads", "4"));
+        long seconds = Long.parseLong(options.getOrDefault("seconds", "30"));
+        long warmup = Long.parseLong(options.getOrDefault("warmup", "5"));
+        long seed = Long.parseLong(options.getOrDefault("seed", Long.toString(RosterGenerator.DEFAULT_SEED)));
+        Map<Operation, Integer> mix = parseMix(options.getOrDefault("mix", "search=40,filter=25,add=15,edit=15,delete=5"));
+
+        Database db = new Database(java.nio.file.Paths.get(args[0]).toAbsolutePath().toString());
+        try {
+            db.init();
+            LoadDriver driver = new LoadDriver(db, threads, warmup * 1000, seconds * 1000, mix, seed);
+            driver.prepare();
+            System.out.printf("%,d students, %d thread(s), %d s warmup + %d s measured, mix %s%n",
+                driver.ids.length, threads, warmup, seconds, mix);
+            driver.printReport(driver.run());
+        } finally {
+            db.close();
+        }
+    }
+}
@@ -1,29 +1,39 @@
 package com.studentrecords;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.io.File;
 import java.nio.file.Paths;
 import java.sql.SQLException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Main application window: student list, filters, add/edit/delete, export and report.
  */
 public class MainFrame extends JFrame {
     private final Database db;
+    /** Recent query results; switching back to a filter or extending a search skips the query. */
+    private final QueryResultCache results = QueryResultCache.shared();
     private final JTable table;
-    private final DefaultTableModel tableModel;
+    private final StudentTableModel tableModel;
     private final JLabel statusLabel;
     private final JComboBox<String> programFilter;
     private final JComboBox<String> yearFilter;
     private final JTextField searchField;
+    private final Timer filterTimer;
+    private SwingWorker<List<Student>, Void> pendingLoad;
+    private long loadGeneration;
+    /** Filter of the rows in the table, for deciding whether a changed row belongs in them. */
+    private StudentFilter shownFilter = StudentFilter.ALL;
 
-    private static final String[] COLUMNS = { "Student ID", "Name", "Email", "Program", "Year", "GPA" };
+    /** Quiet period that coalesces bursts of filter edits into a single query. */
+    private static final int FILTER_DELAY_MS = 200;
+    /** Results larger than this are read a page at a time as the table scrolls. */
+    private static final int IN_MEMORY_LIMIT = 5000;
 
     public MainFrame() throws SQLException {
-        db = new Database();
+        db = Database.shared();
         db.init();
 
         setTitle("Student Records Manager");
@@ -31,15 +41,17 @@ public class MainFrame extends JFrame {
         setSize(920, 520);
         setMinimumSize(new Dimension(700, 400));
 
-        tableModel = new DefaultTableModel(COLUMNS, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
+        tableModel = new StudentTableModel();
         table = new JTable(tableModel);
         table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         table.getTableHeader().setReorderingAllowed(false);
+        // Header clicks change the query's ORDER BY instead of sorting the rows in memory.
+        StudentTableModel.Sorter sorter = new StudentTableModel.Sorter(tableModel);
+        sorter.addRowSorterListener(e -> loadStudents());
+        table.setRowSorter(sorter);
+
+        filterTimer = new Timer(FILTER_DELAY_MS, e -> loadStudents());
+        filterTimer.setRepeats(false);
 
         JToolBar toolBar = new JToolBar();
         toolBar.setFloatable(false);
@@ -67,23 +79,23 @@ public class MainFrame extends JFrame {
         toolBar.add(new JLabel(" Program: "));
         programFilter = new JComboBox<>(new String[]{""});
         programFilter.setEditable(false);
-        programFilter.addActionListener(e -> loadStudents());
+        programFilter.addActionListener(e -> scheduleLoad());
         toolBar.add(programFilter);
 
         toolBar.add(new JLabel(" Year: "));
         yearFilter = new JComboBox<>(new String[]{"", "1", "2", "3", "4", "5", "6"});
-        yearFilter.addActionListener(e -> loadStudents());
+        yearFilter.addActionListener(e -> scheduleLoad());
         toolBar.add(yearFilter);
 
         toolBar.add(new JLabel(" Search: "));
         searchField = new JTextField(14);
         searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
             @Override
-            public void insertUpdate(javax.swing.event.DocumentEvent e) { loadStudents(); }
+            public void insertUpdate(javax.swing.event.DocumentEvent e) { scheduleLoad(); }
             @Override
-            public void removeUpdate(javax.swing.event.DocumentEvent e) { loadStudents(); }
+            public void removeUpdate(javax.swing.event.DocumentEvent e) { scheduleLoad(); }
             @Override
-            public void changedUpdate(javax.swing.event.DocumentEvent e) { loadStudents(); }
+            public void changedUpdate(javax.swing.event.DocumentEvent e) { scheduleLoad(); }
         });
         toolBar.add(searchField);
 
@@ -94,6 +106,12 @@ public class MainFrame extends JFrame {
                 exportCsv();
             }
         }));
+        toolBar.add(new JButton(new AbstractAction("Import CSV…") {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                importCsv();
+            }
+        }));
         toolBar.add(new JButton(new AbstractAction("Summary Report…") {
             @Override
             public void actionPerformed(java.awt.event.ActionEvent e) {
@@ -111,6 +129,41 @@ public class MainFrame extends JFrame {
 
         refreshProgramFilter();
         loadStudents();
+        db.addChangeListener(event -> SwingUtilities.invokeLater(() -> applyChange(event)));
+    }
+
+    /**
+     * Applies a committed change to the table rows, checking only the changed row against the
+     * shown filter, so the selection and scroll position survive. Bulk writes and changes that
+     * race an in-flight load fall back to a reload.
+     */
+    private void applyChange(StudentChangeEvent event) {
+        Student after = event.getAfter();
+        if (after != null) addProgramChoice(after.getProgram());
+        if (event.getType() == StudentChangeEvent.Type.BULK || pendingLoad != null || tableModel.isPaged()) {
+            loadStudents();
+            return;
+        }
+        if (event.getType() == StudentChangeEvent.Type.CLEARED) {
+            tableModel.clear();
+        } else {
+            int index = tableModel.indexOf(event.getStudentId());
+            boolean show = after != null && db.matches(shownFilter, after);
+            if (index >= 0 && show
+                    && tableModel.getSort().comparator().compare(tableModel.getStudent(index), after) == 0) {
+                tableModel.set(index, after);
+            } else {
+                if (index >= 0) tableModel.remove(index);
+                if (show) tableModel.insert(tableModel.insertionPoint(after), after);
+            }
+        }
+        statusLabel.setText("Showing " + tableModel.getRowCount() + " student(s).");
+    }
+
+    /** Adds a program to the filter choices if it is new, without changing the selection. */
+    private void addProgramChoice(String program) {
+        DefaultComboBoxModel<String> model = (DefaultComboBoxModel<String>) programFilter.getModel();
+        if (program != null && model.getIndexOf(program) < 0) model.addElement(program);
     }
 
     private String[] programSuggestions() {
@@ -136,7 +189,25 @@ public class MainFrame extends JFrame {
         } catch (SQLException ignored) {}
     }
 
+    /** Restarts the coalescing timer; the query runs once edits have paused. */
+    private void scheduleLoad() {
+        filterTimer.restart();
+    }
+
     private void loadStudents() {
+        loadStudents(null);
+    }
+
+    /**
+     * Runs the filtered query in the table's sort order on a {@link SwingWorker}, then swaps the
+     * rows into the model with a single change event. Results above {@link #IN_MEMORY_LIMIT}
+     * rows are not loaded but paged in as the table scrolls. Results of superseded loads are
+     * dropped.
+     *
+     * @param message optional status text shown ahead of the row count
+     */
+    private void loadStudents(String message) {
+        filterTimer.stop();
         String pf = programFilter.getSelectedItem() != null ? programFilter.getSelectedItem().toString().trim() : "";
         if (pf.isEmpty()) pf = null;
         String yStr = yearFilter.getSelectedItem() != null ? yearFilter.getSelectedItem().toString().trim() : "";
@@ -147,20 +218,74 @@ public class MainFrame extends JFrame {
         String search = searchField.getText() != null ? searchField.getText().trim() : null;
         if (search != null && search.isEmpty()) search = null;
 
-        try {
-            List<Student> students = db.listStudents(pf, yf, search);
-            tableModel.setRowCount(0);
-            for (Student s : students) {
-                String gpa = s.getGpa() != null ? String.format("%.2f", s.getGpa()) : "";
-                tableModel.addRow(new Object[]{
-                    s.getId(), s.getFullName(), s.getEmail(), s.getProgram(), s.getYear(), gpa
+        if (pendingLoad != null) pendingLoad.cancel(false);
+        long generation = ++loadGeneration;
+        StudentFilter filter = new StudentFilter(pf, yf, search);
+        StudentSort sort = tableModel.getSort();
+
+        pendingLoad = new SwingWorker<List<Student>, Void>() {
+            private long elapsedMs;
+            private int total;
+            private StudentPageCache pages;
+
+            @Override
+            protected List<Student> doInBackground() throws SQLException {
+                long start = System.nanoTime();
+                List<Student> rows = results.get(filter, sort);
+                total = rows != null ? rows.size() : db.countStudents(filter);
+                if (rows != null) {
+                    // Answered from a recent result without querying.
+                } else if (total > IN_MEMORY_LIMIT) {
+                    pages = new StudentPageCache(db, filter, sort, total);
+                    pages.setListener(pageListener(pages));
+                    pages.get(0);
+                } else {
+                    rows = results.list(filter, sort);
+                    total = rows.size();
+                }
+                elapsedMs = (System.nanoTime() - start) / 1_000_000;
+                return rows;
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled() || generation != loadGeneration) return;
+                pendingLoad = null;
+                try {
+                    List<Student> rows = get();
+                    if (pages != null) tableModel.setPages(pages);
+                    else tableModel.setRows(rows);
+                    shownFilter = filter;
+                    String shown = "Showing " + total + " student(s) (" + elapsedMs + " ms).";
+                    statusLabel.setText(message != null ? message + " " + shown : shown);
+                } catch (Exception e) {
+                    Throwable cause = e instanceof java.util.concurrent.ExecutionException && e.getCause() != null
+                        ? e.getCause() : e;
+                    statusLabel.setText("Error: " + cause.getMessage());
+                    JOptionPane.showMessageDialog(MainFrame.this, cause.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        pendingLoad.execute();
+    }
+
+    /** Redraws rows as their pages arrive and reports a failed read, while {@code pages} is shown. */
+    private StudentPageCache.Listener pageListener(StudentPageCache pages) {
+        return new StudentPageCache.Listener() {
+            @Override
+            public void rowsLoaded(int from, int to) {
+                SwingUtilities.invokeLater(() -> tableModel.rowsLoaded(pages, from, to));
+            }
+
+            @Override
+            public void loadFailed(SQLException e) {
+                SwingUtilities.invokeLater(() -> {
+                    if (!tableModel.shows(pages)) return;
+                    statusLabel.setText("Error: " + e.getMessage());
+                    JOptionPane.showMessageDialog(MainFrame.this, e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
                 });
             }
-            statusLabel.setText("Showing " + students.size() + " student(s).");
-        } catch (SQLException e) {
-            statusLabel.setText("Error: " + e.getMessage());
-            JOptionPane.showMessageDialog(this, e.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        };
     }
 
     private void addStudent() {
@@ -170,14 +295,8 @@ public class MainFrame extends JFrame {
         d.setVisible(true);
         Student s = d.getResult();
         if (s != null) {
-            try {
-                db.addStudent(s);
-                refreshProgramFilter();
-                loadStudents();
-                statusLabel.setText("Added student " + s.getId() + ".");
-            } catch (SQLException ex) {
-                JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-            }
+            statusLabel.setText("Saving " + s.getId() + "…");
+            afterWrite(db.addStudentAsync(s), "Added student " + s.getId() + ".");
         }
     }
 
@@ -187,9 +306,11 @@ public class MainFrame extends JFrame {
             JOptionPane.showMessageDialog(this, "Select a student to edit.", "Edit", JOptionPane.INFORMATION_MESSAGE);
             return;
         }
-        String id = tableModel.getValueAt(row, 0).toString();
+        Student selected = tableModel.getStudent(table.convertRowIndexToModel(row));
+        if (selected == null) return;
+        String id = selected.getId();
         try {
-            Student s = db.getStudent(id);
+            Student s = StudentCache.shared().get(id);
             if (s == null) {
                 JOptionPane.showMessageDialog(this, "Student not found.", "Error", JOptionPane.ERROR_MESSAGE);
                 return;
@@ -198,10 +319,8 @@ public class MainFrame extends JFrame {
             d.setVisible(true);
             Student updated = d.getResult();
             if (updated != null) {
-                db.updateStudent(id, updated);
-                refreshProgramFilter();
-                loadStudents();
-                statusLabel.setText("Updated student " + updated.getId() + ".");
+                statusLabel.setText("Saving " + updated.getId() + "…");
+                afterWrite(db.updateStudentAsync(id, updated), "Updated student " + updated.getId() + ".");
             }
         } catch (SQLException ex) {
             JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
@@ -214,17 +333,28 @@ public class MainFrame extends JFrame {
             JOptionPane.showMessageDialog(this, "Select a student to delete.", "Delete", JOptionPane.INFORMATION_MESSAGE);
             return;
         }
-        String id = tableModel.getValueAt(row, 0).toString();
+        Student selected = tableModel.getStudent(table.convertRowIndexToModel(row));
+        if (selected == null) return;
+        String id = selected.getId();
         if (JOptionPane.showConfirmDialog(this, "Delete student '" + id + "'?", "Confirm", JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION)
             return;
-        try {
-            db.deleteStudent(id);
-            refreshProgramFilter();
-            loadStudents();
-            statusLabel.setText("Deleted " + id + ".");
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
-        }
+        statusLabel.setText("Deleting " + id + "…");
+        afterWrite(db.deleteStudentAsync(id), "Deleted " + id + ".");
+    }
+
+    /**
+     * Reports the outcome of a queued write on the EDT once it has committed. The rows
+     * themselves are updated by {@link #applyChange}, which runs before the future completes.
+     */
+    private void afterWrite(CompletableFuture<?> write, String message) {
+        write.whenComplete((rows, err) -> SwingUtilities.invokeLater(() -> {
+            if (err != null) {
+                statusLabel.setText("Error: " + err.getMessage());
+                JOptionPane.showMessageDialog(this, err.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            statusLabel.setText(message + " Showing " + tableModel.getRowCount() + " student(s).");
+        }));
     }
 
     private void exportCsv() {
@@ -240,13 +370,63 @@ public class MainFrame extends JFrame {
         try { if (!yStr.isEmpty()) yf = Integer.parseInt(yStr); } catch (NumberFormatException ignored) {}
         String search = searchField.getText() != null ? searchField.getText().trim() : null;
         if (search != null && search.isEmpty()) search = null;
-        try {
-            int n = Reports.exportCsv(Paths.get(f.getAbsolutePath()), pf, yf, search);
-            statusLabel.setText("Exported " + n + " record(s) to " + f.getPath());
-            JOptionPane.showMessageDialog(this, "Exported " + n + " record(s) to CSV.");
-        } catch (Exception ex) {
-            JOptionPane.showMessageDialog(this, ex.getMessage(), "Export Error", JOptionPane.ERROR_MESSAGE);
-        }
+        StudentFilter filter = new StudentFilter(pf, yf, search);
+        statusLabel.setText("Exporting to " + f.getName() + "…");
+        new SwingWorker<Long, Void>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                return Reports.exportCsv(Paths.get(f.getAbsolutePath()), filter, null);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    long n = get();
+                    statusLabel.setText("Exported " + n + " record(s) to " + f.getPath());
+                    JOptionPane.showMessageDialog(MainFrame.this, "Exported " + n + " record(s) to CSV.");
+                } catch (Exception ex) {
+                    Throwable cause = ex instanceof java.util.concurrent.ExecutionException && ex.getCause() != null
+                        ? ex.getCause() : ex;
+                    statusLabel.setText("Export failed.");
+                    JOptionPane.showMessageDialog(MainFrame.this, cause.getMessage(), "Export Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    private void importCsv() {
+        JFileChooser fc = new JFileChooser();
+        if (fc.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) return;
+        File f = fc.getSelectedFile();
+        if (f == null) return;
+        statusLabel.setText("Importing " + f.getName() + "…");
+        new SwingWorker<CsvImport.ImportResult, Void>() {
+            @Override
+            protected CsvImport.ImportResult doInBackground() throws Exception {
+                return CsvImport.importCsv(db, f.toPath(), null);
+            }
+
+            @Override
+            protected void done() {
+                refreshProgramFilter();
+                try {
+                    CsvImport.ImportResult result = get();
+                    String details = result.summary();
+                    if (!result.getRejected().isEmpty()) {
+                        File report = new File(f.getParentFile(), f.getName() + ".rejected.csv");
+                        result.writeRejectedReport(report.toPath());
+                        details += "\n\nRejected rows were written to:\n" + report.getPath();
+                    }
+                    loadStudents(result.summary());
+                    JOptionPane.showMessageDialog(MainFrame.this, details, "Import Complete", JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception ex) {
+                    Throwable cause = ex instanceof java.util.concurrent.ExecutionException && ex.getCause() != null
+                        ? ex.getCause() : ex;
+                    loadStudents();
+                    JOptionPane.showMessageDialog(MainFrame.this, cause.getMessage(), "Import Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
     }
 
     private void summaryReport() {
@@ -255,12 +435,26 @@ public class MainFrame extends JFrame {
         if (fc.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
         File f = fc.getSelectedFile();
         if (f == null) return;
-        try {
-            String content = Reports.generateSummaryReport(Paths.get(f.getAbsolutePath()));
-            statusLabel.setText("Summary report saved to " + f.getPath());
-            JOptionPane.showMessageDialog(this, "Report saved.\n\n" + content);
-        } catch (Exception ex) {
-            JOptionPane.showMessageDialog(this, ex.getMessage(), "Report Error", JOptionPane.ERROR_MESSAGE);
-        }
+        statusLabel.setText("Generating summary report…");
+        new SwingWorker<String, Void>() {
+            @Override
+            protected String doInBackground() throws Exception {
+                return Reports.generateSummaryReport(Paths.get(f.getAbsolutePath()));
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    String content = get();
+                    statusLabel.setText("Summary report saved to " + f.getPath());
+                    JOptionPane.showMessageDialog(MainFrame.this, "Report saved.\n\n" + content);
+                } catch (Exception ex) {
+                    Throwable cause = ex instanceof java.util.concurrent.ExecutionException && ex.getCause() != null
+                        ? ex.getCause() : ex;
+                    statusLabel.setText("Summary report failed.");
+                    JOptionPane.showMessageDialog(MainFrame.this, cause.getMessage(), "Report Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
     }
 }
@@ -1,19 +1,30 @@
 package com.studentrecords;
 
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
 import javafx.stage.FileChooser;
 import javafx.stage.Modality;
 import javafx.stage.Window;
+import javafx.util.Duration;
 
 import java.io.File;
 import java.nio.file.Paths;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * JavaFX controller: main screen with table, filters, and actions.
@@ -33,9 +44,32 @@ public class MainViewController {
     @FXML private TextField searchField;
     @FXML private Label statusLabel;
 
-    private final Database db = new Database();
+    /** Quiet period after the last keystroke before a search query is issued. */
+    private static final Duration SEARCH_DEBOUNCE = Duration.millis(250);
+    /** Results larger than this are shown through a {@link PagedStudentList} instead of being loaded whole. */
+    private static final int IN_MEMORY_LIMIT = 5000;
+
+    private final Database db = Database.shared();
+    /** Recent query results; switching back to a filter or extending a search skips the query. */
+    private final QueryResultCache results = QueryResultCache.shared();
     private final ObservableList<Student> students = FXCollections.observableArrayList();
 
+    /** Runs list queries off the FX thread; one worker so queries never pile up in parallel. */
+    private final ExecutorService queryExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "student-query");
+        t.setDaemon(true);
+        return t;
+    });
+    private final PauseTransition searchDebounce = new PauseTransition(SEARCH_DEBOUNCE);
+    private Task<LoadResult> pendingLoad;
+    private long loadGeneration;
+    /** Filter of the rows currently shown, for deciding whether a changed row belongs in them. */
+    private StudentFilter shownFilter = StudentFilter.ALL;
+    /** Whether the rows shown are search results in relevance order rather than list order. */
+    private boolean shownRanked;
+    /** Cell values of the students shown, built on first render; entries go with their student. */
+    private final Map<Student, StudentCells> cells = new WeakHashMap<>();
+
     @FXML
     private void initialize() {
         try {
@@ -44,35 +78,110 @@ public class MainViewController {
             showError("Database Error", e.getMessage());
         }
 
-        idColumn.setCellValueFactory(cell -> javafx.beans.property.SimpleStringProperty
-            .stringExpression(new javafx.beans.property.SimpleStringProperty(cell.getValue().getId())));
-        nameColumn.setCellValueFactory(cell -> new javafx.beans.property.SimpleStringProperty(
-            cell.getValue().getFullName()
-        ));
-        emailColumn.setCellValueFactory(cell -> new javafx.beans.property.SimpleStringProperty(
-            cell.getValue().getEmail()
-        ));
-        programColumn.setCellValueFactory(cell -> new javafx.beans.property.SimpleStringProperty(
-            cell.getValue().getProgram()
-        ));
-        yearColumn.setCellValueFactory(cell -> new javafx.beans.property.SimpleIntegerProperty(
-            cell.getValue().getYear()
-        ).asObject());
-        gpaColumn.setCellValueFactory(cell -> {
-            Double gpa = cell.getValue().getGpa();
-            return new javafx.beans.property.SimpleStringProperty(
-                gpa != null ? String.format("%.2f", gpa) : ""
-            );
-        });
+        // Cells bind to the row's cached display values instead of formatting on every render.
+        idColumn.setCellValueFactory(cell -> cells(cell.getValue()).text(StudentRow.ID));
+        nameColumn.setCellValueFactory(cell -> cells(cell.getValue()).text(StudentRow.NAME));
+        emailColumn.setCellValueFactory(cell -> cells(cell.getValue()).text(StudentRow.EMAIL));
+        programColumn.setCellValueFactory(cell -> cells(cell.getValue()).text(StudentRow.PROGRAM));
+        yearColumn.setCellValueFactory(cell -> cells(cell.getValue()).year());
+        gpaColumn.setCellValueFactory(cell -> cells(cell.getValue()).text(StudentRow.GPA));
 
         studentTable.setItems(students);
+        // Paged results are read-only and already in list order, so header sorting is refused.
+        studentTable.setSortPolicy(table -> !(table.getItems() instanceof PagedStudentList)
+            && TableView.DEFAULT_SORT_POLICY.call(table));
 
         yearFilter.setItems(FXCollections.observableArrayList("", "1", "2", "3", "4", "5", "6"));
 
-        searchField.textProperty().addListener((obs, oldV, newV) -> loadStudents());
+        searchDebounce.setOnFinished(e -> loadStudents());
+        searchField.textProperty().addListener((obs, oldV, newV) -> searchDebounce.playFromStart());
+        programFilter.valueProperty().addListener((obs, oldV, newV) -> loadStudents());
+        yearFilter.valueProperty().addListener((obs, oldV, newV) -> loadStudents());
 
         refreshProgramFilter();
         loadStudents();
+        db.addChangeListener(event -> Platform.runLater(() -> applyChange(event)));
+    }
+
+    /**
+     * Applies a committed change to the rows on screen, checking only the changed row against
+     * the current filter. Selection and scroll position are kept. Paged results, ranked search
+     * results, bulk writes and changes that race an in-flight load fall back to a reload.
+     */
+    private void applyChange(StudentChangeEvent event) {
+        Student after = event.getAfter();
+        if (after != null) addProgramChoice(after.getProgram());
+        if (event.getType() == StudentChangeEvent.Type.BULK || pendingLoad != null
+                || studentTable.getItems() != students || shownRanked) {
+            loadStudents();
+            return;
+        }
+
+        Student selected = studentTable.getSelectionModel().getSelectedItem();
+        if (event.getType() == StudentChangeEvent.Type.CLEARED) {
+            students.clear();
+        } else {
+            int index = indexOf(event.getStudentId());
+            boolean show = after != null && db.matches(shownFilter, after);
+            boolean defaultOrder = studentTable.getSortOrder().isEmpty();
+            if (index >= 0 && show && !(defaultOrder && Database.LIST_ORDER.compare(students.get(index), after) != 0)) {
+                students.set(index, after);
+            } else {
+                if (index >= 0) students.remove(index);
+                if (show) {
+                    int at = defaultOrder ? insertionPoint(after) : students.size();
+                    students.add(at, after);
+                }
+            }
+            if (!defaultOrder) studentTable.sort();
+        }
+        reselect(selected);
+        statusLabel.setText("Showing " + students.size() + " student(s).");
+    }
+
+    /**
+     * Shows freshly loaded rows by applying only their differences to the rows on screen, so
+     * unchanged rows are not redrawn and the selection and scroll position are kept.
+     */
+    private void showRows(List<Student> rows) {
+        Student selected = studentTable.getItems() == students
+            ? studentTable.getSelectionModel().getSelectedItem() : null;
+        if (!studentTable.getSortOrder().isEmpty()) {
+            // Compare in the order the table shows; the query returns list order.
+            rows = new ArrayList<>(rows);
+            rows.sort(studentTable.getComparator());
+        }
+        StudentListDiff.apply(students, rows);
+        if (studentTable.getItems() != students) studentTable.setItems(students);
+        reselect(selected);
+    }
+
+    /** Selects the row that now shows {@code selected}'s student, if it is still there. */
+    private void reselect(Student selected) {
+        if (selected == null) return;
+        int index = indexOf(selected.getId());
+        if (index >= 0 && studentTable.getSelectionModel().getSelectedIndex() != index) {
+            studentTable.getSelectionModel().clearAndSelect(index);
+        }
+    }
+
+    private int indexOf(String studentId) {
+        for (int i = 0; i < students.size(); i++) {
+            if (students.get(i).getId().equals(studentId)) return i;
+        }
+        return -1;
+    }
+
+    /** Position of a student in the unsorted list, which the query returned in list order. */
+    private int insertionPoint(Student s) {
+        int i = Collections.binarySearch(students, s, Database.LIST_ORDER);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    /** Adds a program to the filter choices if it is new, without touching the selection. */
+    private void addProgramChoice(String program) {
+        ObservableList<String> items = programFilter.getItems();
+        if (program != null && !items.contains(program)) items.add(program);
     }
 
     private void refreshProgramFilter() {
@@ -96,6 +205,17 @@ public class MainViewController {
     }
 
     private void loadStudents() {
+        loadStudents(null);
+    }
+
+    /**
+     * Queries the current filters on the background executor. Any query still in flight is
+     * cancelled, and a result is only applied if no newer load was started meanwhile. A search
+     * with no column sort set shows the best matches first.
+     *
+     * @param message optional status text shown ahead of the row count, e.g. after an edit
+     */
+    private void loadStudents(String message) {
         String pf = programFilter.getSelectionModel().getSelectedItem();
         if (pf != null && pf.isBlank()) pf = null;
 
@@ -110,12 +230,92 @@ public class MainViewController {
         String search = searchField.getText();
         if (search != null && search.isBlank()) search = null;
 
-        try {
-            List<Student> list = db.listStudents(pf, yf, search);
-            students.setAll(list);
-            statusLabel.setText("Showing " + list.size() + " student(s).");
-        } catch (SQLException e) {
-            showError("Error Loading Students", e.getMessage());
+        searchDebounce.stop();
+        if (pendingLoad != null) pendingLoad.cancel();
+        long generation = ++loadGeneration;
+        StudentFilter filter = new StudentFilter(pf, yf, search);
+        boolean ranked = search != null && studentTable.getSortOrder().isEmpty();
+
+        Task<LoadResult> task = new Task<>() {
+            @Override
+            protected LoadResult call() throws Exception {
+                long start = System.nanoTime();
+                List<Student> cached = ranked ? null : results.get(filter, StudentSort.DEFAULT);
+                int total = cached != null ? cached.size() : db.countStudents(filter);
+                LoadResult result;
+                if (cached != null) {
+                    result = new LoadResult(cached, null, total);
+                } else if (total > IN_MEMORY_LIMIT) {
+                    StudentPageCache pages = new StudentPageCache(db, filter, total);
+                    PagedStudentList paged = new PagedStudentList(pages);
+                    pages.setListener(pageListener(paged));
+                    pages.get(0);
+                    result = new LoadResult(null, paged, total);
+                } else if (ranked) {
+                    result = new LoadResult(db.searchStudents(filter, IN_MEMORY_LIMIT), null, total);
+                } else {
+                    result = new LoadResult(results.list(filter, StudentSort.DEFAULT), null, total);
+                }
+                result.elapsedMs = (System.nanoTime() - start) / 1_000_000;
+                return result;
+            }
+        };
+        task.setOnSucceeded(e -> {
+            if (generation != loadGeneration) return;
+            pendingLoad = null;
+            shownFilter = filter;
+            LoadResult result = task.getValue();
+            shownRanked = ranked && result.paged == null;
+            if (result.paged != null) {
+                studentTable.getSortOrder().clear();
+                studentTable.setItems(result.paged);
+                students.clear();
+            } else {
+                showRows(result.rows);
+            }
+            String shown = "Showing " + result.total + " student(s) (" + result.elapsedMs + " ms).";
+            statusLabel.setText(message != null ? message + " " + shown : shown);
+        });
+        task.setOnFailed(e -> {
+            if (generation != loadGeneration) return;
+            pendingLoad = null;
+            Throwable err = task.getException();
+            showError("Error Loading Students", err != null ? err.getMessage() : "Unknown error");
+        });
+        pendingLoad = task;
+        queryExecutor.execute(task);
+    }
+
+    /** Redraws rows as their pages arrive and reports a failed read, while {@code paged} is shown. */
+    private StudentPageCache.Listener pageListener(PagedStudentList paged) {
+        return new StudentPageCache.Listener() {
+            @Override
+            public void rowsLoaded(int from, int to) {
+                Platform.runLater(() -> {
+                    if (studentTable.getItems() == paged) studentTable.refresh();
+                });
+            }
+
+            @Override
+            public void loadFailed(SQLException e) {
+                Platform.runLater(() -> {
+                    if (studentTable.getItems() == paged) showError("Error Loading Students", e.getMessage());
+                });
+            }
+        };
+    }
+
+    /** Outcome of a background load: either the rows themselves or a paged view onto them. */
+    private static final class LoadResult {
+        final List<Student> rows;
+        final PagedStudentList paged;
+        final int total;
+        long elapsedMs;
+
+        LoadResult(List<Student> rows, PagedStudentList paged, int total) {
+            this.rows = rows;
+            this.paged = paged;
+            this.total = total;
         }
     }
 
@@ -123,41 +323,30 @@ public class MainViewController {
     private void onAdd() {
         Student s = showStudentDialog("Add Student", null);
         if (s != null) {
-            try {
-                db.addStudent(s);
-                refreshProgramFilter();
-                loadStudents();
-                statusLabel.setText("Added student " + s.getId() + ".");
-            } catch (SQLException e) {
-                showError("Error Adding Student", e.getMessage());
-            }
+            statusLabel.setText("Saving " + s.getId() + "…");
+            afterWrite(db.addStudentAsync(s), "Added student " + s.getId() + ".", "Error Adding Student");
         }
     }
 
     @FXML
     private void onEdit() {
         Student selected = studentTable.getSelectionModel().getSelectedItem();
-        if (selected == null) {
+        if (selected == null || selected == StudentPageCache.LOADING) {
             showInfo("Edit", "Select a student to edit.");
             return;
         }
         Student updated = showStudentDialog("Edit Student", selected);
         if (updated != null) {
-            try {
-                db.updateStudent(selected.getId(), updated);
-                refreshProgramFilter();
-                loadStudents();
-                statusLabel.setText("Updated student " + updated.getId() + ".");
-            } catch (SQLException e) {
-                showError("Error Updating Student", e.getMessage());
-            }
+            statusLabel.setText("Saving " + updated.getId() + "…");
+            afterWrite(db.updateStudentAsync(selected.getId(), updated),
+                "Updated student " + updated.getId() + ".", "Error Updating Student");
         }
     }
 
     @FXML
     private void onDelete() {
         Student selected = studentTable.getSelectionModel().getSelectedItem();
-        if (selected == null) {
+        if (selected == null || selected == StudentPageCache.LOADING) {
             showInfo("Delete", "Select a student to delete.");
             return;
         }
@@ -169,23 +358,35 @@ public class MainViewController {
         confirm.initOwner(getWindow());
         confirm.showAndWait().ifPresent(r -> {
             if (r == ButtonType.OK) {
-                try {
-                    db.deleteStudent(selected.getId());
-                    refreshProgramFilter();
-                    loadStudents();
-                    statusLabel.setText("Deleted " + selected.getId() + ".");
-                } catch (SQLException e) {
-                    showError("Error Deleting Student", e.getMessage());
-                }
+                statusLabel.setText("Deleting " + selected.getId() + "…");
+                afterWrite(db.deleteStudentAsync(selected.getId()),
+                    "Deleted " + selected.getId() + ".", "Error Deleting Student");
             }
         });
     }
 
+    /**
+     * Reports the outcome of a queued write once it has committed. The table itself is updated
+     * by {@link #applyChange}, which the database calls before the write's future completes.
+     * Writes run on the database writer thread, so the FX thread never waits for a commit.
+     */
+    private void afterWrite(CompletableFuture<?> write, String message, String errorTitle) {
+        write.whenComplete((rows, err) -> Platform.runLater(() -> {
+            if (err != null) {
+                statusLabel.setText("");
+                showError(errorTitle, err.getMessage());
+                return;
+            }
+            statusLabel.setText(message + " Showing " + studentTable.getItems().size() + " student(s).");
+        }));
+    }
+
     @FXML
     private void onExportCsv() {
         FileChooser chooser = new FileChooser();
         chooser.setTitle("Export CSV");
         chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Compressed CSV Files", "*.csv.gz"));
         chooser.setInitialFileName("students_export.csv");
         File file = chooser.showSaveDialog(getWindow());
         if (file == null) return;
@@ -199,14 +400,119 @@ public class MainViewController {
         }
         String search = searchField.getText();
         if (search != null && search.isBlank()) search = null;
+        StudentFilter filter = new StudentFilter(pf, yf, search);
+        long start = System.nanoTime();
+
+        Task<Long> task = new Task<>() {
+            @Override
+            protected Long call() throws Exception {
+                return Reports.exportCsv(Paths.get(file.getAbsolutePath()), filter, (done, total) -> {
+                    updateProgress(done, total);
+                    updateMessage("Exported " + done + " of " + total + " record(s)…");
+                    return !isCancelled();
+                });
+            }
+        };
+        Dialog<ButtonType> progress = showProgressDialog("Exporting CSV", task);
+        task.setOnSucceeded(e -> {
+            progress.close();
+            long n = task.getValue();
+            double seconds = Math.max((System.nanoTime() - start) / 1e9, 1e-3);
+            String rate = String.format("%,.0f rows/s", n / seconds);
+            statusLabel.setText("Exported " + n + " record(s) to " + file.getPath() + " (" + rate + ").");
+            showInfo("Export Complete", "Exported " + n + " record(s) to CSV.\n\nThroughput: " + rate);
+        });
+        task.setOnCancelled(e -> {
+            progress.close();
+            statusLabel.setText("Export cancelled.");
+        });
+        task.setOnFailed(e -> {
+            progress.close();
+            Throwable err = task.getException();
+            showError("Export Error", err != null ? err.getMessage() : "Unknown error");
+        });
 
-        try {
-            int n = Reports.exportCsv(Paths.get(file.getAbsolutePath()), pf, yf, search);
-            statusLabel.setText("Exported " + n + " record(s) to " + file.getPath());
-            showInfo("Export Complete", "Exported " + n + " record(s) to CSV.");
-        } catch (Exception e) {
-            showError("Export Error", e.getMessage());
-        }
+        Thread worker = new Thread(task, "csv-export");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @FXML
+    private void onImportCsv() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Import CSV");
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
+        File file = chooser.showOpenDialog(getWindow());
+        if (file == null) return;
+
+        Task<CsvImport.ImportResult> task = new Task<>() {
+            @Override
+            protected CsvImport.ImportResult call() throws Exception {
+                updateMessage("Reading and validating " + file.getName() + "…");
+                return CsvImport.importCsv(db, file.toPath(), (done, total) -> {
+                    updateProgress(done, total);
+                    updateMessage("Imported " + done + " of " + total + " record(s)…");
+                    return !isCancelled();
+                });
+            }
+        };
+        Dialog<ButtonType> progress = showProgressDialog("Importing CSV", task);
+        task.setOnSucceeded(e -> {
+            progress.close();
+            CsvImport.ImportResult result = task.getValue();
+            String details = result.summary();
+            if (!result.getRejected().isEmpty()) {
+                File report = new File(file.getParentFile(), file.getName() + ".rejected.csv");
+                try {
+                    result.writeRejectedReport(report.toPath());
+                    details += "\n\nRejected rows were written to:\n" + report.getPath();
+                } catch (Exception ex) {
+                    details += "\n\nCould not write rejected-rows report: " + ex.getMessage();
+                }
+            }
+            refreshProgramFilter();
+            loadStudents(result.summary());
+            showInfo("Import Complete", details);
+        });
+        task.setOnFailed(e -> {
+            progress.close();
+            Throwable err = task.getException();
+            showError("Import Error", err != null ? err.getMessage() : "Unknown error");
+            refreshProgramFilter();
+            loadStudents();
+        });
+
+        Thread worker = new Thread(task, "csv-import");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Non-blocking dialog tracking a background task's progress and message. Its Cancel button
+     * cancels the task; the caller closes the dialog when the task finishes.
+     */
+    private Dialog<ButtonType> showProgressDialog(String title, Task<?> task) {
+        ProgressBar bar = new ProgressBar();
+        bar.setPrefWidth(320);
+        bar.progressProperty().bind(task.progressProperty());
+        Label message = new Label();
+        message.textProperty().bind(task.messageProperty());
+
+        javafx.scene.layout.VBox content = new javafx.scene.layout.VBox(8, message, bar);
+        content.setStyle("-fx-padding: 10;");
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle(title);
+        dialog.setHeaderText(null);
+        applyDialogStyle(dialog);
+        dialog.initOwner(getWindow());
+        dialog.getDialogPane().setContent(content);
+        dialog.getDialogPane().getButtonTypes().add(ButtonType.CANCEL);
+        dialog.setOnHidden(e -> {
+            if (task.isRunning()) task.cancel();
+        });
+        dialog.show();
+        return dialog;
     }
 
     @FXML
@@ -214,16 +520,31 @@ public class MainViewController {
         FileChooser chooser = new FileChooser();
         chooser.setTitle("Save Summary Report");
         chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("Text Files", "*.txt"));
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("CSV Files", "*.csv"));
+        chooser.getExtensionFilters().add(new FileChooser.ExtensionFilter("JSON Files", "*.json"));
         chooser.setInitialFileName("student_summary.txt");
         File file = chooser.showSaveDialog(getWindow());
         if (file == null) return;
-        try {
-            String content = Reports.generateSummaryReport(Paths.get(file.getAbsolutePath()));
+        statusLabel.setText("Generating summary report…");
+        Task<String> task = new Task<>() {
+            @Override
+            protected String call() throws Exception {
+                return Reports.generateSummaryReport(Paths.get(file.getAbsolutePath()));
+            }
+        };
+        task.setOnSucceeded(e -> {
             statusLabel.setText("Summary report saved to " + file.getPath());
-            showInfo("Summary Report", "Report saved.\n\n" + content);
-        } catch (Exception e) {
-            showError("Report Error", e.getMessage());
-        }
+            showInfo("Summary Report", "Report saved.\n\n" + task.getValue());
+        });
+        task.setOnFailed(e -> {
+            statusLabel.setText("Summary report failed.");
+            Throwable err = task.getException();
+            showError("Report Error", err != null ? err.getMessage() : "Unknown error");
+        });
+
+        Thread worker = new Thread(task, "summary-report");
+        worker.setDaemon(true);
+        worker.start();
     }
 
     @FXML
@@ -332,6 +653,10 @@ public class MainViewController {
         return dialog.getResult();
     }
 
+    private StudentCells cells(Student s) {
+        return cells.computeIfAbsent(s, StudentCells::new);
+    }
+
     private Window getWindow() {
         return statusLabel.getScene() != null ? statusLabel.getScene().getWindow() : null;
     }
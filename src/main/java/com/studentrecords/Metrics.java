@@ -0,0 +1,154 @@
+package com.studentrecords;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide operation timings. Instrumented code holds a {@link Timer} in a static field
+ * and records each call with {@code timer.record(start, rows)}, which costs a few atomic
+ * increments and no allocation. The admin panel reads {@link #snapshot()} to show them live.
+ */
+public final class Metrics {
+    private static final Map<String, Timer> TIMERS = new ConcurrentSkipListMap<>();
+    private static volatile boolean enabled = true;
+
+    private Metrics() {}
+
+    /** The timer with the given name, created on first use. */
+    public static Timer timer(String name) {
+        return TIMERS.computeIfAbsent(name, Timer::new);
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Turns recording on or off; while off, {@link Timer#record} returns immediately. */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /** Current values of every timer that has recorded at least one call, sorted by name. */
+    public static List<Snapshot> snapshot() {
+        List<Snapshot> out = new ArrayList<>();
+        for (Timer t : TIMERS.values()) {
+            if (t.latency.getCount() > 0) out.add(new Snapshot(t));
+        }
+        return out;
+    }
+
+    public static void reset() {
+        for (Timer t : TIMERS.values()) t.reset();
+    }
+
+    /** Writes the current snapshot as CSV when the file name ends in {@code .csv}, otherwise as a text table. */
+    public static void dump(Path path) throws IOException {
+        List<Snapshot> rows = snapshot();
+        boolean csv = path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".csv");
+        try (PrintWriter w = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(path.toFile()), StandardCharsets.UTF_8)))) {
+            if (csv) {
+                w.println("Operation,Count,Mean ms,p50 ms,p95 ms,p99 ms,Max ms,Rows,Bytes");
+                for (Snapshot s : rows) {
+                    w.printf(Locale.ROOT, "%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%d,%d%n", s.name, s.count,
+                        s.meanMs, s.p50Ms, s.p95Ms, s.p99Ms, s.maxMs, s.rows, s.bytes);
+                }
+            } else {
+                w.println("Operation timings as of " + LocalDateTime.now().withNano(0));
+                w.println();
+                w.printf("%-32s %10s %10s %10s %10s %10s %10s %12s %14s%n",
+                    "Operation", "Count", "Mean ms", "p50 ms", "p95 ms", "p99 ms", "Max ms", "Rows", "Bytes");
+                for (Snapshot s : rows) {
+                    w.printf(Locale.ROOT, "%-32s %10d %10.3f %10.3f %10.3f %10.3f %10.3f %12d %14d%n", s.name,
+                        s.count, s.meanMs, s.p50Ms, s.p95Ms, s.p99Ms, s.maxMs, s.rows, s.bytes);
+                }
+            }
+        }
+    }
+
+    /** Latency histogram plus row and byte totals for one named operation. */
+    public static final class Timer {
+        private final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+
+        private Timer(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Records one call that began at {@code startNanos} (from {@link System#nanoTime()}).
+         *
+         * @param rowCount rows returned or written by the call
+         */
+        public void record(long startNanos, long rowCount) {
+            if (!enabled) return;
+            latency.record(System.nanoTime() - startNanos);
+            if (rowCount != 0) rows.add(rowCount);
+        }
+
+        /** Adds to the bytes-written total, e.g. the size of an exported file. */
+        public void addBytes(long n) {
+            if (enabled && n > 0) bytes.add(n);
+        }
+
+        private void reset() {
+            latency.reset();
+            rows.reset();
+            bytes.reset();
+        }
+    }
+
+    /** Point-in-time values of one timer, with getters for table binding. */
+    public static final class Snapshot {
+        private final String name;
+        private final long count;
+        private final double meanMs;
+        private final double p50Ms;
+        private final double p95Ms;
+        private final double p99Ms;
+        private final double maxMs;
+        private final long rows;
+        private final long bytes;
+
+        private Snapshot(Timer t) {
+            name = t.name;
+            count = t.latency.getCount();
+            meanMs = millis(t.latency.getMeanNanos());
+            p50Ms = millis(t.latency.percentileNanos(0.50));
+            p95Ms = millis(t.latency.percentileNanos(0.95));
+            p99Ms = millis(t.latency.percentileNanos(0.99));
+            maxMs = millis(t.latency.getMaxNanos());
+            rows = t.rows.sum();
+            bytes = t.bytes.sum();
+        }
+
+        /** Nanoseconds to milliseconds, rounded to microseconds for display. */
+        private static double millis(double nanos) {
+            return Math.round(nanos / 1_000) / 1_000.0;
+        }
+
+        public String getName() { return name; }
+        public long getCount() { return count; }
+        public double getMeanMs() { return meanMs; }
+        public double getP50Ms() { return p50Ms; }
+        public double getP95Ms() { return p95Ms; }
+        public double getP99Ms() { return p99Ms; }
+        public double getMaxMs() { return maxMs; }
+        public long getRows() { return rows; }
+        public long getBytes() { return bytes; }
+    }
+}
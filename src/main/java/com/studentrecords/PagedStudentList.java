@@ -0,0 +1,30 @@
+package com.studentrecords;
+
+import javafx.collections.ObservableListBase;
+
+/**
+ * Read-only list for {@code TableView} backed by a {@link StudentPageCache}, so the table
+ * only pulls the rows it is about to render. Rows still loading read as
+ * {@link StudentPageCache#LOADING}.
+ */
+public class PagedStudentList extends ObservableListBase<Student> {
+    private final StudentPageCache pages;
+
+    public PagedStudentList(StudentPageCache pages) {
+        this.pages = pages;
+    }
+
+    public StudentPageCache getPages() {
+        return pages;
+    }
+
+    @Override
+    public Student get(int index) {
+        return pages.peek(index);
+    }
+
+    @Override
+    public int size() {
+        return pages.size();
+    }
+}
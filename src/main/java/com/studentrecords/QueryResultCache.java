@@ -0,0 +1,189 @@
+package com.studentrecords;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Recent {@link Database#listStudents(StudentFilter, StudentSort)} results, so flipping back
+ * to a program/year/search combination does not query again. Each result remembers the
+ * {@link Database#getVersion() version} it was read at and is only served while no write has
+ * happened since. A search that extends a cached one (typing "gar" after "ga", or any search
+ * after the plain program/year list) is answered by filtering the cached rows in memory,
+ * unless a search has to be left to the database (see {@link Database#decidesInMemory}).
+ *
+ * <p>Results are evicted least recently used first once their estimated size passes a byte
+ * budget. Results are returned as unmodifiable lists shared between callers.
+ */
+public final class QueryResultCache {
+    /** Memory budget of the shared cache, overridable with {@code -Dstudentrecords.queryCacheBytes=...}. */
+    static final long DEFAULT_MAX_BYTES = Long.getLong("studentrecords.queryCacheBytes", 32L << 20);
+
+    /** Rough heap cost of a {@link Student} and its strings, apart from the characters. */
+    private static final int STUDENT_OVERHEAD_BYTES = 7 * 40 + 48;
+    private static final int ENTRY_OVERHEAD_BYTES = 200;
+
+    private static QueryResultCache shared;
+
+    private final Database db;
+    private final long maxBytes;
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private long hits;
+    private long narrowed;
+    private long misses;
+    private long evictions;
+
+    public QueryResultCache(Database db, long maxBytes) {
+        this.db = db;
+        this.maxBytes = maxBytes;
+    }
+
+    /** Cache in front of {@link Database#shared()}. */
+    public static synchronized QueryResultCache shared() {
+        if (shared == null) shared = new QueryResultCache(Database.shared(), DEFAULT_MAX_BYTES);
+        return shared;
+    }
+
+    /**
+     * Current results for the filter and order if they can be had without a query, from a
+     * cached result for the same filter or one it narrows; otherwise null.
+     */
+    public synchronized List<Student> get(StudentFilter filter, StudentSort sort) {
+        long version = db.getVersion();
+        Key key = new Key(filter, sort);
+        Entry exact = entries.get(key);
+        if (exact != null && exact.version == version) {
+            hits++;
+            return exact.rows;
+        }
+        Entry broader = null;
+        for (Map.Entry<Key, Entry> e : entries.entrySet()) {
+            Entry candidate = e.getValue();
+            if (candidate.version == version && e.getKey().sort.equals(sort)
+                    && db.narrows(e.getKey().filter, filter)
+                    && (broader == null || candidate.rows.size() < broader.rows.size())) {
+                broader = candidate;
+            }
+        }
+        if (broader == null) return null;
+        List<Student> rows = new ArrayList<>();
+        for (Student s : broader.rows) {
+            if (!db.decidesInMemory(filter, s)) return null;
+            if (db.matches(filter, s)) rows.add(s);
+        }
+        narrowed++;
+        return store(key, rows, version);
+    }
+
+    /** Results for the filter and order, from the cache when current, otherwise queried and cached. */
+    public List<Student> list(StudentFilter filter, StudentSort sort) throws SQLException {
+        List<Student> cached = get(filter, sort);
+        if (cached != null) return cached;
+        long version = db.getVersion();
+        List<Student> rows = db.listStudents(filter, sort);
+        synchronized (this) {
+            misses++;
+            return store(new Key(filter, sort), rows, version);
+        }
+    }
+
+    /**
+     * Keeps rows read at {@code version}. A write committed during the query has already moved
+     * the version on, so such rows are never served.
+     */
+    private List<Student> store(Key key, List<Student> rows, long version) {
+        List<Student> view = Collections.unmodifiableList(rows);
+        long size = estimateBytes(rows);
+        Entry previous = entries.remove(key);
+        if (previous != null) bytes -= previous.bytes;
+        if (size > maxBytes / 4) return view;
+        entries.put(key, new Entry(view, version, size));
+        bytes += size;
+        // Evict stale results first, then the least recently used.
+        long current = db.getVersion();
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            Entry e = it.next();
+            if (e.version != current) {
+                bytes -= e.bytes;
+                it.remove();
+            }
+        }
+        for (Iterator<Entry> it = entries.values().iterator(); bytes > maxBytes && it.hasNext(); ) {
+            Entry e = it.next();
+            bytes -= e.bytes;
+            it.remove();
+            evictions++;
+        }
+        return view;
+    }
+
+    private static long estimateBytes(List<Student> rows) {
+        long size = ENTRY_OVERHEAD_BYTES + 8L * rows.size();
+        for (Student s : rows) {
+            size += STUDENT_OVERHEAD_BYTES + s.getId().length() + s.getFirstName().length()
+                + s.getLastName().length() + s.getEmail().length() + s.getProgram().length()
+                + s.getNotes().length();
+        }
+        return size;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /** Lookups answered by a cached result for the same filter. */
+    public synchronized long getHits() { return hits; }
+    /** Lookups answered by filtering a broader cached result. */
+    public synchronized long getNarrowed() { return narrowed; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+    /** Estimated heap held by cached results. */
+    public synchronized long getBytes() { return bytes; }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("QueryResultCache[%d results, %,d/%,d bytes, %,d hits, %,d narrowed, %,d misses, %,d evictions]",
+            entries.size(), bytes, maxBytes, hits, narrowed, misses, evictions);
+    }
+
+    private static final class Key {
+        final StudentFilter filter;
+        final StudentSort sort;
+
+        Key(StudentFilter filter, StudentSort sort) {
+            this.filter = filter;
+            this.sort = sort;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return filter.equals(k.filter) && sort.equals(k.sort);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(filter, sort);
+        }
+    }
+
+    private static final class Entry {
+        final List<Student> rows;
+        final long version;
+        final long bytes;
+
+        Entry(List<Student> rows, long version, long bytes) {
+            this.rows = rows;
+            this.version = version;
+            this.bytes = bytes;
+        }
+    }
+}
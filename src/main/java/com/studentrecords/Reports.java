@@ -1,69 +1,161 @@
 package com.studentrecords;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.sql.SQLException;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * Report generation: CSV export and summary report.
  */
 public final class Reports {
-    private static final Database DB = new Database();
+    private static final Database DB = Database.shared();
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    static final String CSV_HEADER = "Student ID,First Name,Last Name,Email,Program,Year,GPA,Notes";
+    /** Rows between progress callbacks during export. */
+    private static final int PROGRESS_INTERVAL = 1000;
+
+    private static final Metrics.Timer EXPORT_TIMER = Metrics.timer("Reports.exportCsv");
+    private static final Metrics.Timer SUMMARY_TIMER = Metrics.timer("Reports.generateSummaryReport");
 
     private Reports() {}
 
+    /** Export progress callback; return false to cancel the export. */
+    public interface ExportProgress {
+        boolean update(long rowsWritten, long totalRows);
+    }
+
     public static int exportCsv(Path filepath, String programFilter, Integer yearFilter, String search) throws SQLException, IOException {
-        List<Student> students = DB.listStudents(programFilter, yearFilter, search);
-        try (Writer w = new OutputStreamWriter(new FileOutputStream(filepath.toFile()), "UTF-8");
-             BufferedWriter bw = new BufferedWriter(w)) {
-            bw.write("Student ID,First Name,Last Name,Email,Program,Year,GPA,Notes");
-            bw.newLine();
-            for (Student s : students) {
-                String gpa = s.getGpa() != null ? String.valueOf(s.getGpa()) : "";
-                String notes = escapeCsv(s.getNotes());
-                bw.write(String.join(",", escapeCsv(s.getId()), escapeCsv(s.getFirstName()),
-                    escapeCsv(s.getLastName()), escapeCsv(s.getEmail()), escapeCsv(s.getProgram()),
-                    String.valueOf(s.getYear()), gpa, notes));
-                bw.newLine();
+        return (int) exportCsv(filepath, new StudentFilter(programFilter, yearFilter, search), null);
+    }
+
+    /**
+     * Streams matching students from the database cursor straight into the file. A path ending
+     * in {@code .gz} is written gzip-compressed. The rows go to a {@code .part} file next to it
+     * that replaces the target only once complete, so a failed or cancelled export never leaves
+     * a truncated file behind. If the progress callback cancels, {@link CancellationException}
+     * is thrown.
+     *
+     * @param progress optional; called every {@value #PROGRESS_INTERVAL} rows and at the end
+     * @return number of rows written
+     */
+    public static long exportCsv(Path filepath, StudentFilter filter, ExportProgress progress) throws SQLException, IOException {
+        long start = System.nanoTime();
+        long total = progress != null ? DB.countStudents(filter) : -1;
+        long[] written = new long[1];
+        boolean[] cancelled = new boolean[1];
+        String name = filepath.getFileName().toString();
+        boolean gzip = name.toLowerCase(Locale.ROOT).endsWith(".gz");
+        Path partial = filepath.resolveSibling(name + ".part");
+        try {
+            // The file is its own resource, so it is closed even if the gzip header cannot be written.
+            try (OutputStream file = new FileOutputStream(partial.toFile());
+                 OutputStream out = gzip ? new GZIPOutputStream(file, WRITE_BUFFER_SIZE) : file;
+                 Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE)) {
+                w.write(CSV_HEADER);
+                w.write(LINE_SEPARATOR);
+                DB.forEachStudent(filter, s -> {
+                    writeCsvRow(w, s);
+                    long n = ++written[0];
+                    if (progress != null && n % PROGRESS_INTERVAL == 0 && !progress.update(n, total)) {
+                        cancelled[0] = true;
+                        return false;
+                    }
+                    return true;
+                });
             }
+            if (cancelled[0]) throw new CancellationException("Export cancelled after " + written[0] + " row(s)");
+            moveIntoPlace(partial, filepath);
+        } finally {
+            Files.deleteIfExists(partial);
         }
-        return students.size();
+        if (progress != null) progress.update(written[0], total);
+        EXPORT_TIMER.record(start, written[0]);
+        EXPORT_TIMER.addBytes(Files.size(filepath));
+        return written[0];
     }
 
-    public static String generateSummaryReport(Path filepath) throws SQLException, IOException {
-        List<Object[]> byProgram = DB.countByProgram();
-        List<Object[]> byYear = DB.countByYear();
-        int total = byProgram.stream().mapToInt(row -> (Integer) row[1]).sum();
-
-        StringBuilder sb = new StringBuilder();
-        sb.append("Student Records – Summary Report\n");
-        sb.append("Generated: ").append(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"))).append("\n\n");
-        sb.append("Total students: ").append(total).append("\n\n");
-        sb.append("By program:\n");
-        for (Object[] row : byProgram) {
-            sb.append("  ").append(row[0]).append(": ").append(row[1]).append("\n");
-        }
-        sb.append("\nBy year:\n");
-        for (Object[] row : byYear) {
-            sb.append("  Year ").append(row[0]).append(": ").append(row[1]).append("\n");
+    private static void moveIntoPlace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
         }
-        sb.append("\n");
+    }
+
+    static void writeCsvRow(Writer w, Student s) throws IOException {
+        writeCsvField(w, s.getId());
+        w.write(',');
+        writeCsvField(w, s.getFirstName());
+        w.write(',');
+        writeCsvField(w, s.getLastName());
+        w.write(',');
+        writeCsvField(w, s.getEmail());
+        w.write(',');
+        writeCsvField(w, s.getProgram());
+        w.write(',');
+        w.write(Integer.toString(s.getYear()));
+        w.write(',');
+        if (s.getGpa() != null) w.write(Double.toString(s.getGpa()));
+        w.write(',');
+        writeCsvField(w, s.getNotes());
+        w.write(LINE_SEPARATOR);
+    }
+
+    /**
+     * Computes the summary in a single table scan and writes it as CSV or JSON when the file
+     * name ends in {@code .csv} or {@code .json}, otherwise as plain text.
+     *
+     * @return the content written
+     */
+    public static String generateSummaryReport(Path filepath) throws SQLException, IOException {
+        long start = System.nanoTime();
+        SummaryReport report = SummaryReport.compute(DB);
+        String name = filepath.getFileName().toString().toLowerCase(Locale.ROOT);
+        String content;
+        if (name.endsWith(".csv")) content = report.toCsv();
+        else if (name.endsWith(".json")) content = report.toJson();
+        else content = report.toText();
 
-        String content = sb.toString();
         try (Writer w = new OutputStreamWriter(new FileOutputStream(filepath.toFile()), "UTF-8")) {
             w.write(content);
         }
+        SUMMARY_TIMER.record(start, report.getTotal());
+        SUMMARY_TIMER.addBytes(Files.size(filepath));
         return content;
     }
 
-    private static String escapeCsv(String s) {
-        if (s == null) return "";
-        if (s.contains(",") || s.contains("\"") || s.contains("\n")) {
-            return "\"" + s.replace("\"", "\"\"") + "\"";
+    /**
+     * Writes one CSV field, quoting it only if it contains a comma, quote or line break.
+     * Unquoted fields are written straight through without building a new string.
+     */
+    private static void writeCsvField(Writer w, String s) throws IOException {
+        if (s == null) return;
+        int n = s.length();
+        int i = 0;
+        while (i < n) {
+            char ch = s.charAt(i);
+            if (ch == ',' || ch == '"' || ch == '\n' || ch == '\r') break;
+            i++;
+        }
+        if (i == n) {
+            w.write(s);
+            return;
+        }
+        w.write('"');
+        w.write(s, 0, i);
+        for (; i < n; i++) {
+            char ch = s.charAt(i);
+            if (ch == '"') w.write('"');
+            w.write(ch);
         }
-        return s;
+        w.write('"');
     }
 }
@@ -0,0 +1,204 @@
+package com.studentrecords;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Deterministic synthetic rosters for load and capacity testing. Every student is derived from
+ * the seed and its index alone, so any row can be regenerated independently and a given seed
+ * always yields the same roster. Program, year, GPA and notes follow skewed distributions
+ * modelled on a mid-sized university rather than uniform noise, and every row passes
+ * {@link Validation}.
+ *
+ * <pre>
+ * java -cp student-records-manager-1.0.0-all.jar com.studentrecords.RosterGenerator 1000000 roster.db [seed]
+ * </pre>
+ * The output is a SQLite database, or CSV in the export layout when the file name ends in
+ * {@code .csv} or {@code .csv.gz}.
+ */
+public final class RosterGenerator {
+    public static final long DEFAULT_SEED = 20240901L;
+
+    /** Rows inserted per transaction when writing to a database. */
+    private static final int ROWS_PER_TRANSACTION = 10_000;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+
+    static final String[] PROGRAMS = {
+        "Computer Science", "Business Administration", "Biology", "Psychology", "Mechanical Engineering",
+        "Nursing", "Economics", "Mathematics", "English", "History", "Physics", "Chemistry", "Fine Arts"
+    };
+    private static final int[] PROGRAM_WEIGHTS = { 17, 14, 12, 11, 9, 9, 7, 5, 5, 4, 3, 3, 1 };
+
+    /** Relative sizes of years 1–6; few students remain past year 4. */
+    private static final int[] YEAR_WEIGHTS = { 28, 25, 22, 19, 4, 2 };
+
+    private static final String[] FIRST_NAMES = {
+        "James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael", "Linda", "William",
+        "Elizabeth", "David", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah",
+        "Christopher", "Karen", "Daniel", "Nancy", "Matthew", "Lisa", "Anthony", "Emily", "Mark",
+        "Ashley", "Steven", "Michelle", "Andrew", "Amanda", "Joshua", "Olivia", "Ethan", "Sophia",
+        "Liam", "Emma", "Noah", "Ava", "Wei", "Mei", "Hiroshi", "Yuki", "Aarav", "Priya", "Mohammed",
+        "Fatima", "Omar", "Aisha", "Mateo", "Sofia", "Santiago", "Valentina", "Kwame", "Amara",
+        "Chinedu", "Ngozi", "Mary Anne", "Jean-Luc"
+    };
+    private static final String[] LAST_NAMES = {
+        "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez",
+        "Martinez", "Hernandez", "Lopez", "Gonzalez", "Wilson", "Anderson", "Thomas", "Taylor",
+        "Moore", "Jackson", "Martin", "Lee", "Perez", "Thompson", "White", "Harris", "Sanchez",
+        "Clark", "Ramirez", "Lewis", "Robinson", "Walker", "Young", "Allen", "King", "Wright",
+        "Scott", "Torres", "Nguyen", "Hill", "Flores", "Green", "Adams", "Nelson", "Baker", "Hall",
+        "Rivera", "Campbell", "Mitchell", "Carter", "Roberts", "Chen", "Wang", "Kim", "Patel",
+        "Singh", "Khan", "Tanaka", "Sato", "Okafor", "Mensah", "O'Brien", "O'Connor", "D'Angelo",
+        "Smith-Jones", "Van der Berg", "MacDonald", "Kowalski", "Novak", "Mueller", "Fernandes"
+    };
+    private static final String[] NOTES = {
+        "Transfer student", "Dean's list", "Scholarship recipient", "Part-time enrollment",
+        "International student", "Returning after leave of absence", "Athletics program",
+        "Accommodation plan on file", "Work-study placement", "Honors track"
+    };
+
+    private final long seed;
+
+    public RosterGenerator() {
+        this(DEFAULT_SEED);
+    }
+
+    public RosterGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /** ID of the student at the given index; IDs sort in index order. */
+    public static String studentId(long index) {
+        return String.format("S%08d", index);
+    }
+
+    /** The student at the given index. The same seed and index always give the same row. */
+    public Student student(long index) {
+        SplittableRandom r = new SplittableRandom(seed * 0x9E3779B97F4A7C15L + index);
+        String first = FIRST_NAMES[skewed(r, FIRST_NAMES.length)];
+        String last = LAST_NAMES[skewed(r, LAST_NAMES.length)];
+        String program = PROGRAMS[weighted(r, PROGRAM_WEIGHTS)];
+        int year = 1 + weighted(r, YEAR_WEIGHTS);
+        Double gpa = gpa(r, year);
+        return new Student(studentId(index), first, last, email(first, last, index),
+            program, year, gpa, notes(r, gpa));
+    }
+
+    /** Students {@code from} (inclusive) to {@code to} (exclusive). */
+    public List<Student> students(long from, long to) {
+        List<Student> out = new ArrayList<>((int) (to - from));
+        for (long i = from; i < to; i++) out.add(student(i));
+        return out;
+    }
+
+    /** Inserts students 0 to count-1 in batched transactions. */
+    public void writeTo(Database db, long count, CsvImport.ImportProgress progress) throws SQLException {
+        for (long from = 0; from < count; from += ROWS_PER_TRANSACTION) {
+            if (progress != null && !progress.update(from, count)) return;
+            db.insertStudents(students(from, Math.min(from + ROWS_PER_TRANSACTION, count)));
+        }
+        if (progress != null) progress.update(count, count);
+    }
+
+    /** Writes students 0 to count-1 as CSV in the export layout, gzip-compressed for {@code .gz}. */
+    public void writeCsv(Path path, long count) throws IOException {
+        OutputStream out = new FileOutputStream(path.toFile());
+        if (path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz")) {
+            out = new GZIPOutputStream(out, WRITE_BUFFER_SIZE);
+        }
+        try (Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), WRITE_BUFFER_SIZE)) {
+            w.write(Reports.CSV_HEADER);
+            w.write(System.lineSeparator());
+            for (long i = 0; i < count; i++) Reports.writeCsvRow(w, student(i));
+        }
+    }
+
+    /** Index biased towards the front of the array, so earlier names are more common. */
+    private static int skewed(SplittableRandom r, int n) {
+        double u = r.nextDouble();
+        return (int) (u * u * n);
+    }
+
+    private static int weighted(SplittableRandom r, int[] weights) {
+        int total = 0;
+        for (int w : weights) total += w;
+        int pick = r.nextInt(total);
+        for (int i = 0; i < weights.length; i++) {
+            pick -= weights[i];
+            if (pick < 0) return i;
+        }
+        return weights.length - 1;
+    }
+
+    /**
+     * Roughly normal around 3.0, drifting up slightly with year as weaker students leave.
+     * A quarter of first-years and a few others have no GPA recorded yet.
+     */
+    private static Double gpa(SplittableRandom r, int year) {
+        if (r.nextInt(100) < (year == 1 ? 25 : 2)) return null;
+        double normal = 0;
+        for (int i = 0; i < 6; i++) normal += r.nextDouble();
+        normal = (normal - 3) * Math.sqrt(2);
+        double g = 2.95 + 0.05 * year + 0.55 * normal;
+        return Math.round(Math.max(0, Math.min(4, g)) * 100) / 100.0;
+    }
+
+    private static String notes(SplittableRandom r, Double gpa) {
+        if (gpa != null && gpa < 2.0 && r.nextInt(2) == 0) return "Academic probation";
+        if (r.nextInt(100) >= 20) return "";
+        return NOTES[r.nextInt(NOTES.length)];
+    }
+
+    private static String email(String first, String last, long index) {
+        StringBuilder sb = new StringBuilder();
+        appendEmailPart(sb, first);
+        sb.append('.');
+        appendEmailPart(sb, last);
+        return sb.append(index).append("@students.example.edu").toString();
+    }
+
+    private static void appendEmailPart(StringBuilder sb, String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char ch = Character.toLowerCase(name.charAt(i));
+            if (ch >= 'a' && ch <= 'z') sb.append(ch);
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: RosterGenerator <count> <output.db|output.csv|output.csv.gz> [seed]");
+            System.exit(2);
+        }
+        long count = Long.parseLong(args[0].replace("_", ""));
+        Path out = Paths.get(args[1]);
+        RosterGenerator generator = new RosterGenerator(args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SEED);
+
+        long start = System.nanoTime();
+        String name = out.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv") || name.endsWith(".csv.gz")) {
+            generator.writeCsv(out, count);
+        } else {
+            Database db = new Database(out.toAbsolutePath().toString());
+            try {
+                db.init();
+                generator.writeTo(db, count, (done, total) -> {
+                    if (done % 100_000 == 0 || done == total) System.out.printf("%,d / %,d%n", done, total);
+                    return true;
+                });
+            } finally {
+                db.close();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Wrote %,d student(s) to %s in %.1f s (%,.0f rows/s).%n",
+            count, out, seconds, count / Math.max(seconds, 1e-3));
+    }
+}
@@ -0,0 +1,174 @@
+package com.studentrecords;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Brings the students table in line with a registrar roster CSV. Stored and incoming rows are
+ * compared by a 64-bit content hash, and only rows that were added, changed or dropped are
+ * written, so unchanged rows and their index entries are left alone.
+ */
+public final class RosterSync {
+    /** Rows written per transaction; progress is reported between transactions. */
+    private static final int ROWS_PER_TRANSACTION = 10_000;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final char FIELD_SEPARATOR = '\u001F';
+
+    private RosterSync() {}
+
+    /**
+     * Syncs the database to the roster: roster rows missing from the table are inserted, rows
+     * whose content differs are updated in place, and stored students absent from the roster
+     * are deleted. Invalid roster rows are skipped and listed in the result; their students are
+     * left as stored rather than deleted. Additions and updates are written before deletions.
+     *
+     * @param progress optional; receives rows written so far and the total to write
+     * @throws IOException if the roster has no valid rows, which would otherwise empty the table
+     */
+    public static SyncResult sync(Database db, Path roster, CsvImport.ImportProgress progress)
+            throws IOException, SQLException {
+        long start = System.nanoTime();
+        CsvImport.ParsedCsv parsed = CsvImport.parse(roster, new HashSet<>());
+        if (parsed.accepted.isEmpty()) {
+            throw new IOException("The roster contains no valid student rows; nothing was changed.");
+        }
+
+        Map<String, Long> stored = new HashMap<>();
+        db.forEachStudent(StudentFilter.ALL, s -> {
+            stored.put(s.getId(), contentHash(s));
+            return true;
+        });
+
+        List<Student> changes = new ArrayList<>();
+        int added = 0;
+        int updated = 0;
+        int unchanged = 0;
+        for (Student s : parsed.accepted) {
+            Long hash = stored.remove(s.getId());
+            if (hash == null) {
+                changes.add(s);
+                added++;
+            } else if (hash != contentHash(s)) {
+                changes.add(s);
+                updated++;
+            } else {
+                unchanged++;
+            }
+        }
+        // A rejected row is still on the roster; one bad cell must not delete the student.
+        for (CsvImport.Rejection r : parsed.rejected) {
+            if (r.getStudentId() != null) stored.remove(r.getStudentId().trim());
+        }
+        List<String> removals = new ArrayList<>(stored.keySet());
+
+        // Upserts go first, so a sync cancelled or failing part-way has only added or updated
+        // rows, never removed one that was about to be written back.
+        long total = (long) removals.size() + changes.size();
+        long written = 0;
+        boolean cancelled = false;
+        for (int from = 0; from < changes.size() && !cancelled; from += ROWS_PER_TRANSACTION) {
+            if (progress != null && !progress.update(written, total)) {
+                cancelled = true;
+                break;
+            }
+            written += db.upsertStudents(changes.subList(from, Math.min(from + ROWS_PER_TRANSACTION, changes.size())));
+        }
+        for (int from = 0; from < removals.size() && !cancelled; from += ROWS_PER_TRANSACTION) {
+            if (progress != null && !progress.update(written, total)) {
+                cancelled = true;
+                break;
+            }
+            written += db.deleteStudents(removals.subList(from, Math.min(from + ROWS_PER_TRANSACTION, removals.size())));
+        }
+        if (progress != null && !cancelled) progress.update(written, total);
+
+        return new SyncResult(parsed.rowsRead, unchanged, updated, added, removals.size(), written,
+            parsed.rejected, cancelled, System.nanoTime() - start);
+    }
+
+    /** FNV-1a hash over every column except the ID, with nulls distinct from empty strings. */
+    static long contentHash(Student s) {
+        long h = FNV_OFFSET;
+        h = mix(h, s.getFirstName());
+        h = mix(h, s.getLastName());
+        h = mix(h, s.getEmail());
+        h = mix(h, s.getProgram());
+        h = mix(h, Integer.toString(s.getYear()));
+        h = mix(h, s.getGpa() == null ? null : Long.toHexString(Double.doubleToLongBits(s.getGpa())));
+        h = mix(h, s.getNotes());
+        return h;
+    }
+
+    private static long mix(long h, String value) {
+        if (value == null) {
+            h = (h ^ 0xFF) * FNV_PRIME;
+        } else {
+            for (int i = 0; i < value.length(); i++) {
+                char ch = value.charAt(i);
+                h = (h ^ (ch & 0xFF)) * FNV_PRIME;
+                h = (h ^ (ch >>> 8)) * FNV_PRIME;
+            }
+        }
+        return (h ^ FIELD_SEPARATOR) * FNV_PRIME;
+    }
+
+    /** Counts, timings and rejected rows of one sync. */
+    public static final class SyncResult {
+        private final int rowsRead;
+        private final int unchanged;
+        private final int updated;
+        private final int added;
+        private final int removed;
+        private final long rowsWritten;
+        private final List<CsvImport.Rejection> rejected;
+        private final boolean cancelled;
+        private final long elapsedNanos;
+
+        SyncResult(int rowsRead, int unchanged, int updated, int added, int removed, long rowsWritten,
+                   List<CsvImport.Rejection> rejected, boolean cancelled, long elapsedNanos) {
+            this.rowsRead = rowsRead;
+            this.unchanged = unchanged;
+            this.updated = updated;
+            this.added = added;
+            this.removed = removed;
+            this.rowsWritten = rowsWritten;
+            this.rejected = Collections.unmodifiableList(rejected);
+            this.cancelled = cancelled;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getRowsRead() { return rowsRead; }
+        public int getUnchanged() { return unchanged; }
+        public int getUpdated() { return updated; }
+        public int getAdded() { return added; }
+        public int getRemoved() { return removed; }
+        public long getRowsWritten() { return rowsWritten; }
+        public List<CsvImport.Rejection> getRejected() { return rejected; }
+        public boolean isCancelled() { return cancelled; }
+        public long getElapsedMillis() { return elapsedNanos / 1_000_000; }
+
+        public String summary() {
+            String counts = String.format("Read %,d row(s): %,d unchanged, %,d updated, %,d added, %,d removed, %,d rejected",
+                rowsRead, unchanged, updated, added, removed, rejected.size());
+            if (cancelled) {
+                counts += String.format(", sync cancelled after %,d of %,d change(s)",
+                    rowsWritten, (long) updated + added + removed);
+            }
+            return counts + String.format(" in %,d ms.", getElapsedMillis());
+        }
+
+        /** Writes the rejected rows as CSV: line number, student ID and reason. */
+        public void writeRejectedReport(Path path) throws IOException {
+            CsvImport.writeRejections(path, rejected);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.studentrecords;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local log of statements that ran longer than a threshold, each with its bound parameters,
+ * row count and {@code EXPLAIN QUERY PLAN} output. The log rotates at {@value #MAX_BYTES}
+ * bytes, keeping {@value #KEEP_FILES} files in total.
+ */
+public final class SlowQueryLog {
+    /** Default threshold, overridable with {@code -Dstudentrecords.slowQueryMillis=...}. */
+    public static final long DEFAULT_THRESHOLD_MILLIS = Long.getLong("studentrecords.slowQueryMillis", 200L);
+
+    private static final long MAX_BYTES = 1 << 20;
+    private static final int KEEP_FILES = 3;
+
+    private final Path path;
+    private volatile long thresholdNanos;
+
+    SlowQueryLog(Path path, long thresholdMillis) {
+        this.path = path;
+        setThresholdMillis(thresholdMillis);
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public long getThresholdMillis() {
+        return thresholdNanos / 1_000_000;
+    }
+
+    /** Statements taking at least this long are logged; 0 turns logging off. */
+    public void setThresholdMillis(long millis) {
+        thresholdNanos = Math.max(0, millis) * 1_000_000;
+    }
+
+    boolean isSlow(long elapsedNanos) {
+        long threshold = thresholdNanos;
+        return threshold > 0 && elapsedNanos >= threshold;
+    }
+
+    /**
+     * Query plan of a statement as indented lines, run on the connection that executed it.
+     * Returns the error text instead if the plan cannot be read.
+     */
+    static String explain(Connection conn, String sql, Object[] params) {
+        try (PreparedStatement ps = conn.prepareStatement("EXPLAIN QUERY PLAN " + sql)) {
+            for (int i = 0; i < params.length; i++) ps.setObject(i + 1, params[i]);
+            Map<Integer, Integer> depth = new HashMap<>();
+            StringBuilder out = new StringBuilder();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt("id");
+                    int d = depth.getOrDefault(rs.getInt("parent"), -1) + 1;
+                    depth.put(id, d);
+                    for (int i = 0; i <= d; i++) out.append("  ");
+                    out.append(rs.getString("detail")).append('\n');
+                }
+            }
+            return out.toString();
+        } catch (SQLException e) {
+            return "  (plan unavailable: " + e.getMessage() + ")\n";
+        }
+    }
+
+    /** Appends one entry, rotating first if the log is full. Logging failures are ignored. */
+    synchronized void record(String sql, Object[] params, long rows, long elapsedNanos, String plan) {
+        StringBuilder entry = new StringBuilder();
+        entry.append(LocalDateTime.now().withNano(0)).append("  ")
+            .append(String.format("%.1f ms", elapsedNanos / 1e6)).append("  ")
+            .append(rows).append(" row(s)\n");
+        entry.append("SQL:    ").append(sql).append('\n');
+        entry.append("Params: ").append(formatParams(params)).append('\n');
+        entry.append("Plan:\n").append(plan != null ? plan : "  (not captured)\n");
+        entry.append('\n');
+        try {
+            if (Files.exists(path) && Files.size(path) >= MAX_BYTES) rotate();
+            Files.write(path, entry.toString().getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException ignored) {
+            // The log is a diagnostic aid; never fail the statement because of it.
+        }
+    }
+
+    /** Entries from all kept files, oldest first. */
+    public synchronized String read() throws IOException {
+        StringBuilder out = new StringBuilder();
+        for (int i = KEEP_FILES - 1; i >= 0; i--) {
+            Path p = generation(i);
+            if (Files.exists(p)) out.append(new String(Files.readAllBytes(p), StandardCharsets.UTF_8));
+        }
+        return out.toString();
+    }
+
+    /** Deletes the current and rotated log files. */
+    public synchronized void clear() throws IOException {
+        for (int i = 0; i < KEEP_FILES; i++) Files.deleteIfExists(generation(i));
+    }
+
+    private void rotate() throws IOException {
+        Files.deleteIfExists(generation(KEEP_FILES - 1));
+        for (int i = KEEP_FILES - 2; i >= 0; i--) {
+            Path p = generation(i);
+            if (Files.exists(p)) Files.move(p, generation(i + 1), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /** 0 is the current file; higher numbers are older. */
+    private Path generation(int i) {
+        if (i == 0) return path;
+        String name = path.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String rotated = dot < 0 ? name + "." + i : name.substring(0, dot) + "." + i + name.substring(dot);
+        return path.resolveSibling(rotated);
+    }
+
+    private static String formatParams(Object[] params) {
+        List<String> out = new ArrayList<>(params.length);
+        for (Object p : params) {
+            out.add(p instanceof String ? "'" + ((String) p).replace("'", "''") + "'" : String.valueOf(p));
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,146 @@
+package com.studentrecords;
+
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Read-through cache of students by ID in front of {@link Database#getStudent}, for the
+ * duplicate-ID check in {@link Validation} and the lookups before an edit. The least recently
+ * used entries are evicted beyond a fixed size. IDs that do not exist are cached too, since
+ * validating a new student looks up an ID nobody has yet.
+ *
+ * <p>The cache stays coherent through {@link Database.ChangeListener} events: committed
+ * inserts, updates and deletes overwrite their entries before the write's future completes,
+ * and clears and bulk writes empty the cache. Other processes' writes arrive the same way,
+ * but only a poll interval later; an insert that races such a write is still refused by the
+ * primary key. The admin panel's Performance tab shows {@link #summary()}.
+ */
+public final class StudentCache {
+    /** Entries kept by the shared cache, overridable with {@code -Dstudentrecords.studentCacheSize=...}. */
+    static final int DEFAULT_MAX_ENTRIES = Integer.getInteger("studentrecords.studentCacheSize", 10_000);
+
+    /** Cached answer for an ID with no student. */
+    private static final Student MISSING = new Student("", "", "", "", "", 0, null, "");
+
+    private static StudentCache shared;
+
+    private final Database db;
+    private final int maxEntries;
+    private final Map<String, Student> entries;
+    private final Database.ChangeListener listener = this::studentsChanged;
+    /** Bumped by every change, so a lookup that raced a write does not cache the old row. */
+    private long generation;
+    private long hits;
+    private long negativeHits;
+    private long misses;
+    private long evictions;
+
+    private StudentCache(Database db, int maxEntries) {
+        this.db = db;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Student> eldest) {
+                if (size() <= StudentCache.this.maxEntries) return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * A cache in front of {@code db} that listens for its changes until {@link #close()}d.
+     */
+    public static StudentCache open(Database db, int maxEntries) {
+        StudentCache cache = new StudentCache(db, maxEntries);
+        db.addChangeListener(cache.listener);
+        return cache;
+    }
+
+    /** Cache in front of {@link Database#shared()}, open for the life of the process. */
+    public static synchronized StudentCache shared() {
+        if (shared == null) shared = open(Database.shared(), DEFAULT_MAX_ENTRIES);
+        return shared;
+    }
+
+    /** Stops listening for changes and drops every entry. */
+    public void close() {
+        db.removeChangeListener(listener);
+        clear();
+    }
+
+    /** The student with this ID, or null if there is none; reads the database only on a miss. */
+    public Student get(String studentId) throws SQLException {
+        long seen;
+        synchronized (this) {
+            Student cached = entries.get(studentId);
+            if (cached != null) {
+                if (cached == MISSING) {
+                    negativeHits++;
+                    return null;
+                }
+                hits++;
+                return cached;
+            }
+            misses++;
+            seen = generation;
+        }
+        Student loaded = db.getStudent(studentId);
+        synchronized (this) {
+            if (generation == seen) entries.put(studentId, loaded != null ? loaded : MISSING);
+        }
+        return loaded;
+    }
+
+    private synchronized void studentsChanged(StudentChangeEvent event) {
+        generation++;
+        Student before = event.getBefore();
+        Student after = event.getAfter();
+        switch (event.getType()) {
+            case INSERTED:
+            case UPDATED:
+            case DELETED:
+                if (before != null) entries.put(before.getId(), MISSING);
+                if (after != null) entries.put(after.getId(), after);
+                break;
+            default:
+                entries.clear();
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Lookups answered with a student from the cache. */
+    public synchronized long getHits() { return hits; }
+    /** Lookups answered "no such ID" from the cache. */
+    public synchronized long getNegativeHits() { return negativeHits; }
+    public synchronized long getMisses() { return misses; }
+    public synchronized long getEvictions() { return evictions; }
+
+    /** Share of lookups answered without the database, 0 to 1. */
+    public synchronized double getHitRate() {
+        long total = hits + negativeHits + misses;
+        return total == 0 ? 0 : (double) (hits + negativeHits) / total;
+    }
+
+    /** One line for the admin panel, e.g. "Student lookups: 1,200 hits, ... (96.0% from cache)". */
+    public synchronized String summary() {
+        return String.format("Student lookups: %,d hits, %,d known missing, %,d database reads, %,d evictions"
+                + " (%.1f%% from cache, %,d of %,d entries)",
+            hits, negativeHits, misses, evictions, getHitRate() * 100, entries.size(), maxEntries);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("StudentCache[%,d/%,d entries, %,d hits, %,d negative hits, %,d misses, %,d evictions, %.1f%% hit rate]",
+            entries.size(), maxEntries, hits, negativeHits, misses, evictions, getHitRate() * 100);
+    }
+}
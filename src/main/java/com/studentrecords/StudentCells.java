@@ -0,0 +1,45 @@
+package com.studentrecords;
+
+import javafx.beans.InvalidationListener;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+
+/**
+ * A {@link StudentRow} as JavaFX cell values. The table binds cells to these observables,
+ * which never change because students are immutable.
+ */
+final class StudentCells {
+    private final ObservableValue<?>[] values = new ObservableValue<?>[StudentRow.COLUMN_COUNT];
+
+    StudentCells(Student s) {
+        StudentRow row = new StudentRow(s);
+        for (int i = 0; i < values.length; i++) values[i] = new Constant<>(row.get(i));
+    }
+
+    ObservableValue<String> text(int column) {
+        @SuppressWarnings("unchecked")
+        ObservableValue<String> value = (ObservableValue<String>) values[column];
+        return value;
+    }
+
+    ObservableValue<Integer> year() {
+        @SuppressWarnings("unchecked")
+        ObservableValue<Integer> value = (ObservableValue<Integer>) values[StudentRow.YEAR];
+        return value;
+    }
+
+    /** An observable value that never changes, so listeners are never called and need not be kept. */
+    private static final class Constant<T> implements ObservableValue<T> {
+        private final T value;
+
+        Constant(T value) {
+            this.value = value;
+        }
+
+        @Override public T getValue() { return value; }
+        @Override public void addListener(ChangeListener<? super T> listener) {}
+        @Override public void removeListener(ChangeListener<? super T> listener) {}
+        @Override public void addListener(InvalidationListener listener) {}
+        @Override public void removeListener(InvalidationListener listener) {}
+    }
+}
@@ -0,0 +1,57 @@
+package com.studentrecords;
+
+/**
+ * A committed change to {@code students}, published by {@link Database} to its change
+ * listeners. Inserts, updates and deletes of single students carry the row before and after
+ * the change. Bulk writes are reported as one {@link Type#BULK} event, so views reload them.
+ * Changes committed by other processes arrive the same way (see {@link ExternalChangeWatcher}).
+ */
+public final class StudentChangeEvent {
+
+    public enum Type {
+        INSERTED,
+        UPDATED,
+        DELETED,
+        /** Every student was deleted. */
+        CLEARED,
+        /** Many students were written at once (import, roster sync); re-read whatever is shown. */
+        BULK
+    }
+
+    private final Type type;
+    private final Student before;
+    private final Student after;
+    private final long seq;
+
+    StudentChangeEvent(Type type, Student before, Student after) {
+        this(type, before, after, 0);
+    }
+
+    StudentChangeEvent(Type type, Student before, Student after, long seq) {
+        this.type = type;
+        this.before = before;
+        this.after = after;
+        this.seq = seq;
+    }
+
+    public Type getType() { return type; }
+
+    /** The row before an update or delete; null for inserts, clears and bulk writes. */
+    public Student getBefore() { return before; }
+
+    /** The row after an insert or update; null for deletes, clears and bulk writes. */
+    public Student getAfter() { return after; }
+
+    /** Change-log sequence number for changes read back from the log, otherwise 0. */
+    long getSeq() { return seq; }
+
+    /** ID of the changed student, or null for clears and bulk writes. */
+    public String getStudentId() {
+        return after != null ? after.getId() : before != null ? before.getId() : null;
+    }
+
+    @Override
+    public String toString() {
+        return "StudentChangeEvent[" + type + (getStudentId() != null ? " " + getStudentId() : "") + "]";
+    }
+}
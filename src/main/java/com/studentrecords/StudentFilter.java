@@ -0,0 +1,49 @@
+package com.studentrecords;
+
+import java.util.Objects;
+
+/**
+ * Immutable program/year/search filter for student queries. Blank values mean "any".
+ */
+public final class StudentFilter {
+    public static final StudentFilter ALL = new StudentFilter(null, null, null);
+
+    private final String program;
+    private final Integer year;
+    private final String search;
+
+    public StudentFilter(String program, Integer year, String search) {
+        this.program = blankToNull(program);
+        this.year = year;
+        this.search = blankToNull(search);
+    }
+
+    private static String blankToNull(String s) {
+        if (s == null) return null;
+        s = s.trim();
+        return s.isEmpty() ? null : s;
+    }
+
+    public String getProgram() { return program; }
+    public Integer getYear() { return year; }
+    public String getSearch() { return search; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof StudentFilter)) return false;
+        StudentFilter f = (StudentFilter) o;
+        return Objects.equals(program, f.program) && Objects.equals(year, f.year)
+            && Objects.equals(search, f.search);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(program, year, search);
+    }
+
+    @Override
+    public String toString() {
+        return "StudentFilter[program=" + program + ", year=" + year + ", search=" + search + "]";
+    }
+}
@@ -0,0 +1,93 @@
+package com.studentrecords;
+
+import javafx.collections.ObservableList;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Brings an on-screen student list up to date with fresh query results, touching only the rows
+ * that changed. Rows are matched by student ID. Gone rows are removed, new rows are inserted in
+ * place, and rows whose values changed are replaced. Unchanged rows keep their cells, so the
+ * table does not redraw them and its selection and scroll position stay put. If the surviving
+ * rows come back in a different order, the list is replaced as a whole.
+ */
+final class StudentListDiff {
+
+    private StudentListDiff() {}
+
+    /**
+     * Makes {@code target} equal to {@code rows}.
+     *
+     * @return number of list positions reported as changed, i.e. rows the table has to redraw
+     */
+    static int apply(ObservableList<Student> target, List<Student> rows) {
+        Set<String> keep = new HashSet<>();
+        for (Student s : rows) keep.add(s.getId());
+
+        if (!sameOrder(target, rows, keep)) {
+            int touched = target.size() + rows.size();
+            target.setAll(rows);
+            return touched;
+        }
+
+        int touched = 0;
+        // Remove gone rows back to front, one contiguous run at a time.
+        for (int end = target.size(); end > 0; ) {
+            if (keep.contains(target.get(end - 1).getId())) {
+                end--;
+                continue;
+            }
+            int start = end - 1;
+            while (start > 0 && !keep.contains(target.get(start - 1).getId())) start--;
+            target.remove(start, end);
+            touched += end - start;
+            end = start;
+        }
+
+        // What is left is in the same order as rows: insert the new ones and replace the edited ones.
+        for (int i = 0; i < rows.size(); ) {
+            Student next = rows.get(i);
+            if (i < target.size() && target.get(i).getId().equals(next.getId())) {
+                if (!sameValues(target.get(i), next)) {
+                    target.set(i, next);
+                    touched++;
+                }
+                i++;
+                continue;
+            }
+            String anchor = i < target.size() ? target.get(i).getId() : null;
+            int end = i + 1;
+            while (end < rows.size() && !rows.get(end).getId().equals(anchor)) end++;
+            target.addAll(i, rows.subList(i, end));
+            touched += end - i;
+            i = end;
+        }
+        return touched;
+    }
+
+    /** Whether the rows of {@code current} that stay appear in {@code rows} in the same order. */
+    private static boolean sameOrder(List<Student> current, List<Student> rows, Set<String> keep) {
+        int j = 0;
+        for (Student s : current) {
+            if (!keep.contains(s.getId())) continue;
+            while (j < rows.size() && !rows.get(j).getId().equals(s.getId())) j++;
+            if (j == rows.size()) return false;
+            j++;
+        }
+        return true;
+    }
+
+    private static boolean sameValues(Student a, Student b) {
+        return a.getYear() == b.getYear()
+            && Objects.equals(a.getId(), b.getId())
+            && Objects.equals(a.getFirstName(), b.getFirstName())
+            && Objects.equals(a.getLastName(), b.getLastName())
+            && Objects.equals(a.getEmail(), b.getEmail())
+            && Objects.equals(a.getProgram(), b.getProgram())
+            && Objects.equals(a.getGpa(), b.getGpa())
+            && Objects.equals(a.getNotes(), b.getNotes());
+    }
+}
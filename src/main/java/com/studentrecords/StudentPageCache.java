@@ -0,0 +1,195 @@
+package com.studentrecords;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Fixed-size window onto one filtered result, read from the database a page at a time.
+ * Pages near the last access are kept, the neighbouring page is prefetched in the
+ * background, and pages far from the viewport are evicted.
+ *
+ * <p>Tables read rows with {@link #peek}, which never waits for the database: a row whose page
+ * is not cached comes back as {@link #LOADING} while the page is read in the background, and
+ * the {@link Listener} is told when it arrives so the table can redraw those rows.
+ */
+public final class StudentPageCache {
+    public static final int PAGE_SIZE = 200;
+    private static final int MAX_PAGES = 16;
+
+    /**
+     * Stands in for a row whose page is still being read, or that no longer exists because the
+     * table shrank since it was counted. Compare by identity.
+     */
+    public static final Student LOADING = new Student("Loading…", "", "", "", "", 0, null, "");
+
+    /** Told about background page reads; called on the loading thread. */
+    public interface Listener {
+        /** Rows {@code from} (inclusive) to {@code to} (exclusive) can now be read with {@link #peek}. */
+        void rowsLoaded(int from, int to);
+
+        /** A page could not be read; reported once per cache, later failures are only retried. */
+        void loadFailed(SQLException e);
+    }
+
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "student-pages");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final Database db;
+    private final StudentFilter filter;
+    private final StudentSort sort;
+    private final int size;
+    private final Map<Integer, List<Student>> pages = new HashMap<>();
+    private final Set<Integer> loading = new HashSet<>();
+    private int lastPage;
+    private volatile Listener listener;
+    private boolean failureReported;
+
+    /**
+     * @param size row count of the filtered result, typically from {@link Database#countStudents}
+     */
+    public StudentPageCache(Database db, StudentFilter filter, int size) {
+        this(db, filter, StudentSort.DEFAULT, size);
+    }
+
+    /**
+     * @param sort order of the rows; only list order can seek from the previous page, other
+     *             orders read each page by position
+     */
+    public StudentPageCache(Database db, StudentFilter filter, StudentSort sort, int size) {
+        this.db = db;
+        this.filter = filter;
+        this.sort = sort;
+        this.size = size;
+    }
+
+    public StudentFilter getFilter() {
+        return filter;
+    }
+
+    public StudentSort getSort() {
+        return sort;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Row at the given position, loading its page synchronously if it is not cached. For
+     * background threads only; tables use {@link #peek}.
+     * May return null if the table shrank since the count was taken.
+     */
+    public Student get(int index) throws SQLException {
+        int pageNo = pageOf(index);
+        List<Student> page;
+        synchronized (this) {
+            lastPage = pageNo;
+            page = pages.get(pageNo);
+        }
+        if (page == null) page = store(pageNo, load(pageNo));
+        prefetchAround(index);
+        int offset = index % PAGE_SIZE;
+        return offset < page.size() ? page.get(offset) : null;
+    }
+
+    /**
+     * Row at the given position if its page is cached, otherwise {@link #LOADING} while the page
+     * is read in the background. Never touches the database, so it is safe on the UI thread.
+     */
+    public Student peek(int index) {
+        int pageNo = pageOf(index);
+        List<Student> page;
+        synchronized (this) {
+            lastPage = pageNo;
+            page = pages.get(pageNo);
+        }
+        if (page == null) {
+            request(pageNo);
+            return LOADING;
+        }
+        prefetchAround(index);
+        int offset = index % PAGE_SIZE;
+        return offset < page.size() ? page.get(offset) : LOADING;
+    }
+
+    private int pageOf(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size);
+        return index / PAGE_SIZE;
+    }
+
+    private void prefetchAround(int index) {
+        int pageNo = index / PAGE_SIZE;
+        int offset = index % PAGE_SIZE;
+        if (offset >= PAGE_SIZE * 3 / 4) request(pageNo + 1);
+        else if (offset < PAGE_SIZE / 4) request(pageNo - 1);
+    }
+
+    /** Reads a page on the loader thread unless it is cached or already on its way. */
+    private void request(int pageNo) {
+        if (pageNo < 0 || pageNo * PAGE_SIZE >= size) return;
+        synchronized (this) {
+            if (pages.containsKey(pageNo) || !loading.add(pageNo)) return;
+        }
+        LOADER.execute(() -> {
+            try {
+                store(pageNo, load(pageNo));
+                Listener l = listener;
+                if (l != null) l.rowsLoaded(pageNo * PAGE_SIZE, Math.min(size, (pageNo + 1) * PAGE_SIZE));
+            } catch (SQLException e) {
+                boolean report;
+                synchronized (this) {
+                    report = !failureReported;
+                    failureReported = true;
+                }
+                Listener l = listener;
+                if (report && l != null) l.loadFailed(e);
+            } finally {
+                synchronized (this) {
+                    loading.remove(pageNo);
+                }
+            }
+        });
+    }
+
+    /** Seeks from the previous page's last row when it is cached; otherwise falls back to OFFSET. */
+    private List<Student> load(int pageNo) throws SQLException {
+        if (!sort.equals(StudentSort.DEFAULT)) return db.pageAt(filter, sort, pageNo * PAGE_SIZE, PAGE_SIZE);
+        if (pageNo == 0) return db.page(filter, null, PAGE_SIZE);
+        List<Student> previous;
+        synchronized (this) {
+            previous = pages.get(pageNo - 1);
+        }
+        if (previous != null && previous.size() == PAGE_SIZE) {
+            return db.page(filter, previous.get(PAGE_SIZE - 1), PAGE_SIZE);
+        }
+        return db.pageAt(filter, pageNo * PAGE_SIZE, PAGE_SIZE);
+    }
+
+    private synchronized List<Student> store(int pageNo, List<Student> page) {
+        List<Student> existing = pages.putIfAbsent(pageNo, page);
+        if (existing != null) return existing;
+        while (pages.size() > MAX_PAGES) evictFarthestFrom(lastPage);
+        return page;
+    }
+
+    private void evictFarthestFrom(int center) {
+        Integer farthest = null;
+        for (Integer p : pages.keySet()) {
+            if (farthest == null || Math.abs(p - center) > Math.abs(farthest - center)) farthest = p;
+        }
+        pages.remove(farthest);
+    }
+}
@@ -0,0 +1,55 @@
+package com.studentrecords;
+
+/**
+ * Display values of one student for the tables, computed once when the row is first shown.
+ * Each view keeps them in a weak map keyed by the {@link Student}, which is immutable, so
+ * scrolling costs no formatting or allocation per cell and the model stays free of view state.
+ * The Swing table reads these values directly; the JavaFX table wraps them in {@link StudentCells}.
+ */
+final class StudentRow {
+    static final int ID = 0;
+    static final int NAME = 1;
+    static final int EMAIL = 2;
+    static final int PROGRAM = 3;
+    static final int YEAR = 4;
+    static final int GPA = 5;
+    static final int COLUMN_COUNT = 6;
+
+    /** Lowest and highest GPA {@link Validation} accepts; every two-decimal value in between is preformatted. */
+    private static final int MIN_GPA_CENTS = 0;
+    private static final int MAX_GPA_CENTS = 400;
+    private static final String[] GPA_TEXT = new String[MAX_GPA_CENTS - MIN_GPA_CENTS + 1];
+
+    static {
+        for (int cents = MIN_GPA_CENTS; cents <= MAX_GPA_CENTS; cents++) {
+            GPA_TEXT[cents - MIN_GPA_CENTS] = String.format("%.2f", cents / 100.0);
+        }
+    }
+
+    private final Object[] values;
+
+    StudentRow(Student s) {
+        // The loading placeholder shows only its "Loading…" ID.
+        values = new Object[]{ s.getId(), s == StudentPageCache.LOADING ? "" : s.getFullName(), s.getEmail(),
+            s.getProgram(), s.getYear() > 0 ? s.getYear() : null, formatGpa(s.getGpa()) };
+    }
+
+    /** Value of a column, as shown: the year as an {@link Integer}, everything else as text. */
+    Object get(int column) {
+        return values[column];
+    }
+
+    /**
+     * Formats a GPA like {@code String.format("%.2f", gpa)}. GPAs entered through the forms have
+     * at most two decimals and come from a preformatted table; anything else is formatted.
+     */
+    static String formatGpa(Double gpa) {
+        if (gpa == null) return "";
+        double scaled = gpa * 100;
+        long cents = Math.round(scaled);
+        if (cents >= MIN_GPA_CENTS && cents <= MAX_GPA_CENTS && Math.abs(scaled - cents) < 1e-6) {
+            return GPA_TEXT[(int) cents - MIN_GPA_CENTS];
+        }
+        return String.format("%.2f", gpa);
+    }
+}
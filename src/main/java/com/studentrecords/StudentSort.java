@@ -0,0 +1,79 @@
+package com.studentrecords;
+
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * Immutable sort order for student queries: one table column, ascending or descending, with
+ * ties broken by list order (last name, first name, ID) so pages never overlap.
+ */
+public final class StudentSort {
+
+    /** Sortable columns, in the order the tables show them. */
+    public enum Column {
+        ID("student_id", Comparator.comparing(Student::getId)),
+        NAME("last_name, first_name", Comparator.comparing(Student::getLastName).thenComparing(Student::getFirstName)),
+        EMAIL("email", Comparator.comparing(Student::getEmail)),
+        PROGRAM("program", Comparator.comparing(Student::getProgram)),
+        YEAR("year", Comparator.comparingInt(Student::getYear)),
+        /** Students without a GPA sort first, as NULLs do in SQLite. */
+        GPA("gpa", Comparator.comparing(Student::getGpa, Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        private final String sql;
+        private final Comparator<Student> comparator;
+
+        Column(String sql, Comparator<Student> comparator) {
+            this.sql = sql;
+            this.comparator = comparator;
+        }
+    }
+
+    /** List order, which the name index serves directly. */
+    public static final StudentSort DEFAULT = new StudentSort(Column.NAME, false);
+
+    private final Column column;
+    private final boolean descending;
+
+    public StudentSort(Column column, boolean descending) {
+        this.column = Objects.requireNonNull(column);
+        this.descending = descending;
+    }
+
+    public Column getColumn() { return column; }
+    public boolean isDescending() { return descending; }
+
+    /** {@code ORDER BY} clause for this order, with a leading space. */
+    String orderBy() {
+        if (!descending) {
+            return column == Column.NAME ? " ORDER BY last_name, first_name, student_id"
+                : " ORDER BY " + column.sql + ", last_name, first_name, student_id";
+        }
+        return column == Column.NAME ? " ORDER BY last_name DESC, first_name DESC, student_id DESC"
+            : " ORDER BY " + column.sql + " DESC, last_name, first_name, student_id";
+    }
+
+    /** The same order in memory, for placing a changed row into loaded results. */
+    public Comparator<Student> comparator() {
+        if (column == Column.NAME) return descending ? Database.LIST_ORDER.reversed() : Database.LIST_ORDER;
+        Comparator<Student> primary = descending ? column.comparator.reversed() : column.comparator;
+        return primary.thenComparing(Database.LIST_ORDER);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof StudentSort)) return false;
+        StudentSort s = (StudentSort) o;
+        return column == s.column && descending == s.descending;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(column, descending);
+    }
+
+    @Override
+    public String toString() {
+        return "StudentSort[" + column + (descending ? " DESC" : "") + "]";
+    }
+}
@@ -0,0 +1,201 @@
+package com.studentrecords;
+
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.table.AbstractTableModel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Table model for the Swing main window. Loaded rows are kept as one {@code Student[]} and
+ * cell values come from a {@link StudentRow} cached per student, so a row costs one array
+ * slot instead of a {@code Vector} of boxed cells. Large results are read through a
+ * {@link StudentPageCache} a page at a time as the table scrolls. Rows are always in the
+ * model's {@link StudentSort}; {@link Sorter} lets the column headers change it, and the rows
+ * are then re-queried in that order.
+ */
+final class StudentTableModel extends AbstractTableModel {
+    static final String[] COLUMNS = { "Student ID", "Name", "Email", "Program", "Year", "GPA" };
+
+    private static final Student[] NO_ROWS = new Student[0];
+
+    private Student[] rows = NO_ROWS;
+    private int size;
+    /** Set while showing a paged result; {@link #rows} is unused then. */
+    private StudentPageCache pages;
+    private StudentSort sort = StudentSort.DEFAULT;
+    /** Display values of the students shown; entries go once a student is no longer referenced. */
+    private final Map<Student, StudentRow> display = new WeakHashMap<>();
+
+    StudentSort getSort() {
+        return sort;
+    }
+
+    /** Replaces all rows with one change event. */
+    void setRows(List<Student> students) {
+        pages = null;
+        rows = students.toArray(NO_ROWS);
+        size = rows.length;
+        fireTableDataChanged();
+    }
+
+    /** Shows a result too large to load, reading pages as rows are displayed. */
+    void setPages(StudentPageCache pageCache) {
+        pages = pageCache;
+        rows = NO_ROWS;
+        size = 0;
+        fireTableDataChanged();
+    }
+
+    boolean isPaged() {
+        return pages != null;
+    }
+
+    /** Whether rows are currently read from this page cache. */
+    boolean shows(StudentPageCache pageCache) {
+        return pages == pageCache;
+    }
+
+    /** Student shown in a row, or null while its page is still loading. */
+    Student getStudent(int row) {
+        Student s = shown(row);
+        return s != StudentPageCache.LOADING ? s : null;
+    }
+
+    private Student shown(int row) {
+        return pages != null ? pages.peek(row) : rows[row];
+    }
+
+    /** Redraws rows whose page has just been read, if this result is still shown. */
+    void rowsLoaded(StudentPageCache pageCache, int from, int to) {
+        if (shows(pageCache) && from < to) fireTableRowsUpdated(from, to - 1);
+    }
+
+    /** Row of a loaded student, or -1; not available for paged results. */
+    int indexOf(String studentId) {
+        for (int i = 0; i < size; i++) {
+            if (rows[i].getId().equals(studentId)) return i;
+        }
+        return -1;
+    }
+
+    /** Where a student belongs among the loaded rows in the current sort order. */
+    int insertionPoint(Student s) {
+        int i = Arrays.binarySearch(rows, 0, size, s, sort.comparator());
+        return i >= 0 ? i : -i - 1;
+    }
+
+    void set(int row, Student s) {
+        rows[row] = s;
+        fireTableRowsUpdated(row, row);
+    }
+
+    void insert(int row, Student s) {
+        if (size == rows.length) rows = Arrays.copyOf(rows, Math.max(16, size + (size >> 1)));
+        System.arraycopy(rows, row, rows, row + 1, size - row);
+        rows[row] = s;
+        size++;
+        fireTableRowsInserted(row, row);
+    }
+
+    void remove(int row) {
+        System.arraycopy(rows, row + 1, rows, row, size - row - 1);
+        rows[--size] = null;
+        fireTableRowsDeleted(row, row);
+    }
+
+    void clear() {
+        setRows(Collections.emptyList());
+    }
+
+    @Override
+    public int getRowCount() {
+        return pages != null ? pages.size() : size;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        return display.computeIfAbsent(shown(row), StudentRow::new).get(column);
+    }
+
+    /**
+     * Shows the model's sort order in the column headers and turns header clicks into a new
+     * sort. It never reorders rows itself: the new order is set on the model, and listeners
+     * (see {@link javax.swing.event.RowSorterListener}) reload the rows sorted by the database.
+     */
+    static final class Sorter extends RowSorter<StudentTableModel> {
+        private static final StudentSort.Column[] SORT_COLUMNS = {
+            StudentSort.Column.ID, StudentSort.Column.NAME, StudentSort.Column.EMAIL,
+            StudentSort.Column.PROGRAM, StudentSort.Column.YEAR, StudentSort.Column.GPA
+        };
+
+        private final StudentTableModel model;
+
+        Sorter(StudentTableModel model) {
+            this.model = model;
+        }
+
+        @Override
+        public StudentTableModel getModel() {
+            return model;
+        }
+
+        @Override
+        public void toggleSortOrder(int column) {
+            StudentSort current = model.sort;
+            StudentSort.Column clicked = SORT_COLUMNS[column];
+            boolean descending = current.getColumn() == clicked && !current.isDescending();
+            setSort(new StudentSort(clicked, descending));
+        }
+
+        @Override
+        public List<? extends SortKey> getSortKeys() {
+            StudentSort current = model.sort;
+            int column = Arrays.asList(SORT_COLUMNS).indexOf(current.getColumn());
+            return Collections.singletonList(
+                new SortKey(column, current.isDescending() ? SortOrder.DESCENDING : SortOrder.ASCENDING));
+        }
+
+        @Override
+        public void setSortKeys(List<? extends SortKey> keys) {
+            if (keys == null || keys.isEmpty() || keys.get(0).getSortOrder() == SortOrder.UNSORTED) {
+                setSort(StudentSort.DEFAULT);
+            } else {
+                SortKey key = keys.get(0);
+                setSort(new StudentSort(SORT_COLUMNS[key.getColumn()], key.getSortOrder() == SortOrder.DESCENDING));
+            }
+        }
+
+        private void setSort(StudentSort sort) {
+            if (sort.equals(model.sort)) return;
+            model.sort = sort;
+            fireSortOrderChanged();
+        }
+
+        // Rows are already in sort order, so view and model indexes are the same.
+
+        @Override public int convertRowIndexToModel(int index) { return index; }
+        @Override public int convertRowIndexToView(int index) { return index; }
+        @Override public int getViewRowCount() { return model.getRowCount(); }
+        @Override public int getModelRowCount() { return model.getRowCount(); }
+        @Override public void modelStructureChanged() {}
+        @Override public void allRowsChanged() {}
+        @Override public void rowsInserted(int firstRow, int endRow) {}
+        @Override public void rowsDeleted(int firstRow, int endRow) {}
+        @Override public void rowsUpdated(int firstRow, int endRow) {}
+        @Override public void rowsUpdated(int firstRow, int endRow, int column) {}
+    }
+}
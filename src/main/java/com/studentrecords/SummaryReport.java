@@ -0,0 +1,308 @@
+package com.studentrecords;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Summary statistics computed in one pass over the students table: program x year counts,
+ * GPA mean/median/percentiles and histogram per program, and missing-GPA counts. Large
+ * tables are scanned as parallel rowid ranges on a fork-join pool.
+ */
+public final class SummaryReport {
+    static final int MAX_YEAR = 6;
+    /** GPA histogram bucket width; the last bucket also holds 4.0. */
+    static final double BUCKET_WIDTH = 0.5;
+    static final int BUCKETS = (int) (4.0 / BUCKET_WIDTH);
+
+    /** Rowid span below which the table is scanned on the calling thread. */
+    private static final long PARALLEL_THRESHOLD = 50_000;
+    private static final long PARTITION_SIZE = 25_000;
+
+    private final LocalDateTime generated;
+    private final Tally overall;
+    private final Map<String, Tally> byProgram;
+
+    private SummaryReport(LocalDateTime generated, Map<String, Tally> byProgram) {
+        this.generated = generated;
+        this.byProgram = Collections.unmodifiableMap(byProgram);
+        this.overall = new Tally();
+        for (Tally t : byProgram.values()) {
+            t.finish();
+            overall.merge(t);
+        }
+        overall.finish();
+    }
+
+    public static SummaryReport compute(Database db) throws SQLException {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        long[] range = db.rowidRange();
+        if (range == null) return new SummaryReport(now, new TreeMap<>());
+        if (range[1] - range[0] < PARALLEL_THRESHOLD) {
+            return new SummaryReport(now, scan(db, range[0], range[1]));
+        }
+        int parallelism = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), Database.MAX_READERS));
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return new SummaryReport(now, pool.invoke(new ScanTask(db, range[0], range[1])));
+        } catch (CompletionException e) {
+            // invoke() rethrows the worker's exception wrapped again, so search the whole chain.
+            for (Throwable t = e.getCause(); t != null; t = t.getCause()) {
+                if (t instanceof SQLException) throw (SQLException) t;
+            }
+            throw e;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static Map<String, Tally> scan(Database db, long from, long to) throws SQLException {
+        Map<String, Tally> out = new TreeMap<>();
+        db.scanGrades(from, to, (program, year, gpa) ->
+            out.computeIfAbsent(program, p -> new Tally()).add(year, gpa));
+        return out;
+    }
+
+    private static Map<String, Tally> merge(Map<String, Tally> into, Map<String, Tally> from) {
+        for (Map.Entry<String, Tally> e : from.entrySet()) {
+            Tally existing = into.get(e.getKey());
+            if (existing == null) into.put(e.getKey(), e.getValue());
+            else existing.merge(e.getValue());
+        }
+        return into;
+    }
+
+    /** Splits a rowid range in half until it is small enough to scan directly. */
+    private static final class ScanTask extends RecursiveTask<Map<String, Tally>> {
+        private final Database db;
+        private final long from;
+        private final long to;
+
+        ScanTask(Database db, long from, long to) {
+            this.db = db;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Map<String, Tally> compute() {
+            if (to - from < PARTITION_SIZE) {
+                try {
+                    return scan(db, from, to);
+                } catch (SQLException e) {
+                    throw new CompletionException(e);
+                }
+            }
+            long mid = from + (to - from) / 2;
+            ScanTask left = new ScanTask(db, from, mid);
+            left.fork();
+            Map<String, Tally> right = new ScanTask(db, mid + 1, to).compute();
+            return merge(left.join(), right);
+        }
+    }
+
+    public int getTotal() {
+        return overall.count;
+    }
+
+    public String toText() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Student Records – Summary Report\n");
+        sb.append("Generated: ").append(generated.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"))).append("\n\n");
+        sb.append("Total students: ").append(overall.count).append("\n\n");
+        sb.append("By program:\n");
+        for (Map.Entry<String, Tally> e : byProgram.entrySet()) {
+            sb.append("  ").append(e.getKey()).append(": ").append(e.getValue().count).append("\n");
+        }
+        sb.append("\nBy year:\n");
+        for (int y = 1; y <= MAX_YEAR; y++) {
+            if (overall.byYear[y] > 0) sb.append("  Year ").append(y).append(": ").append(overall.byYear[y]).append("\n");
+        }
+
+        sb.append("\nProgram x year:\n");
+        sb.append(String.format("  %-12s", "Program"));
+        for (int y = 1; y <= MAX_YEAR; y++) sb.append(String.format("%7s", "Y" + y));
+        sb.append(String.format("%8s\n", "Total"));
+        for (Map.Entry<String, Tally> e : byProgram.entrySet()) appendCrossTabRow(sb, e.getKey(), e.getValue());
+        appendCrossTabRow(sb, "All", overall);
+
+        sb.append("\nGPA by program (n, missing, mean, p25, median, p75, p90):\n");
+        for (Map.Entry<String, Tally> e : byProgram.entrySet()) appendGpaRow(sb, e.getKey(), e.getValue());
+        appendGpaRow(sb, "All", overall);
+
+        sb.append("\nGPA histogram:\n");
+        int widest = Arrays.stream(overall.histogram).max().orElse(0);
+        for (int b = 0; b < BUCKETS; b++) {
+            int bar = widest == 0 ? 0 : (int) Math.round(40.0 * overall.histogram[b] / widest);
+            sb.append(String.format("  %s %7d %s\n", bucketLabel(b), overall.histogram[b], "#".repeat(bar)));
+        }
+        sb.append("\n");
+        return sb.toString();
+    }
+
+    private static void appendCrossTabRow(StringBuilder sb, String label, Tally t) {
+        sb.append(String.format("  %-12s", label));
+        for (int y = 1; y <= MAX_YEAR; y++) sb.append(String.format("%7d", t.byYear[y]));
+        sb.append(String.format("%8d\n", t.count));
+    }
+
+    private static void appendGpaRow(StringBuilder sb, String label, Tally t) {
+        sb.append(String.format("  %-12s %6d %6d", label, t.gpaCount, t.missingGpa));
+        if (t.gpaCount == 0) {
+            sb.append("      –\n");
+        } else {
+            sb.append(String.format(Locale.ROOT, " %6.2f %6.2f %6.2f %6.2f %6.2f\n",
+                t.mean(), t.percentile(25), t.percentile(50), t.percentile(75), t.percentile(90)));
+        }
+    }
+
+    /** One row per program plus an "All" row. */
+    public String toCsv() {
+        StringBuilder sb = new StringBuilder("Program,Total");
+        for (int y = 1; y <= MAX_YEAR; y++) sb.append(",Year ").append(y);
+        sb.append(",Missing GPA,GPA Mean,GPA P25,GPA Median,GPA P75,GPA P90");
+        for (int b = 0; b < BUCKETS; b++) sb.append(",GPA ").append(bucketLabel(b));
+        sb.append("\n");
+        for (Map.Entry<String, Tally> e : byProgram.entrySet()) appendCsvRow(sb, e.getKey(), e.getValue());
+        appendCsvRow(sb, "All", overall);
+        return sb.toString();
+    }
+
+    private static void appendCsvRow(StringBuilder sb, String label, Tally t) {
+        sb.append(csvField(label)).append(',').append(t.count);
+        for (int y = 1; y <= MAX_YEAR; y++) sb.append(',').append(t.byYear[y]);
+        sb.append(',').append(t.missingGpa);
+        for (double v : t.gpaSummary()) sb.append(',').append(Double.isNaN(v) ? "" : format(v));
+        for (int b = 0; b < BUCKETS; b++) sb.append(',').append(t.histogram[b]);
+        sb.append("\n");
+    }
+
+    private static String csvField(String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) return s;
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+
+    public String toJson() {
+        StringBuilder sb = new StringBuilder("{\n");
+        sb.append("  \"generated\": \"").append(generated.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)).append("\",\n");
+        sb.append("  \"total\": ").append(overall.count).append(",\n");
+        sb.append("  \"overall\": ");
+        appendJsonTally(sb, overall);
+        sb.append(",\n  \"programs\": {");
+        boolean first = true;
+        for (Map.Entry<String, Tally> e : byProgram.entrySet()) {
+            sb.append(first ? "\n    " : ",\n    ").append(jsonString(e.getKey())).append(": ");
+            appendJsonTally(sb, e.getValue());
+            first = false;
+        }
+        sb.append(first ? "}\n}\n" : "\n  }\n}\n");
+        return sb.toString();
+    }
+
+    private static void appendJsonTally(StringBuilder sb, Tally t) {
+        sb.append("{\"count\": ").append(t.count).append(", \"byYear\": {");
+        for (int y = 1; y <= MAX_YEAR; y++) {
+            if (y > 1) sb.append(", ");
+            sb.append('"').append(y).append("\": ").append(t.byYear[y]);
+        }
+        sb.append("}, \"missingGpa\": ").append(t.missingGpa).append(", \"gpa\": {");
+        String[] names = { "mean", "p25", "median", "p75", "p90" };
+        double[] values = t.gpaSummary();
+        for (int i = 0; i < names.length; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append('"').append(names[i]).append("\": ").append(Double.isNaN(values[i]) ? "null" : format(values[i]));
+        }
+        sb.append("}, \"histogram\": [");
+        for (int b = 0; b < BUCKETS; b++) {
+            if (b > 0) sb.append(", ");
+            sb.append(t.histogram[b]);
+        }
+        sb.append("]}");
+    }
+
+    private static String jsonString(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch == '"' || ch == '\\') sb.append('\\').append(ch);
+            else if (ch < 0x20) sb.append(String.format("\\u%04x", (int) ch));
+            else sb.append(ch);
+        }
+        return sb.append('"').toString();
+    }
+
+    private static String bucketLabel(int b) {
+        return String.format(Locale.ROOT, "%.1f-%.1f", b * BUCKET_WIDTH, (b + 1) * BUCKET_WIDTH);
+    }
+
+    private static String format(double v) {
+        return String.format(Locale.ROOT, "%.3f", v);
+    }
+
+    /** Counts and GPA values for one program, or for all of them. */
+    private static final class Tally {
+        int count;
+        int missingGpa;
+        final int[] byYear = new int[MAX_YEAR + 1];
+        final int[] histogram = new int[BUCKETS];
+        double[] gpas = new double[16];
+        int gpaCount;
+        double gpaSum;
+
+        void add(int year, Double gpa) {
+            count++;
+            if (year >= 1 && year <= MAX_YEAR) byYear[year]++;
+            if (gpa == null) {
+                missingGpa++;
+                return;
+            }
+            if (gpaCount == gpas.length) gpas = Arrays.copyOf(gpas, gpaCount * 2);
+            gpas[gpaCount++] = gpa;
+            gpaSum += gpa;
+            histogram[Math.min(BUCKETS - 1, Math.max(0, (int) (gpa / BUCKET_WIDTH)))]++;
+        }
+
+        void merge(Tally other) {
+            count += other.count;
+            missingGpa += other.missingGpa;
+            for (int y = 0; y <= MAX_YEAR; y++) byYear[y] += other.byYear[y];
+            for (int b = 0; b < BUCKETS; b++) histogram[b] += other.histogram[b];
+            if (gpaCount + other.gpaCount > gpas.length) {
+                gpas = Arrays.copyOf(gpas, Math.max(gpas.length * 2, gpaCount + other.gpaCount));
+            }
+            System.arraycopy(other.gpas, 0, gpas, gpaCount, other.gpaCount);
+            gpaCount += other.gpaCount;
+            gpaSum += other.gpaSum;
+        }
+
+        /** Sorts the GPA values; call once all rows are added. */
+        void finish() {
+            Arrays.sort(gpas, 0, gpaCount);
+        }
+
+        double mean() {
+            return gpaCount == 0 ? Double.NaN : gpaSum / gpaCount;
+        }
+
+        /** Linear-interpolated percentile of the sorted GPA values. */
+        double percentile(double p) {
+            if (gpaCount == 0) return Double.NaN;
+            double rank = p / 100.0 * (gpaCount - 1);
+            int lo = (int) Math.floor(rank);
+            int hi = Math.min(lo + 1, gpaCount - 1);
+            return gpas[lo] + (gpas[hi] - gpas[lo]) * (rank - lo);
+        }
+
+        double[] gpaSummary() {
+            return new double[]{ mean(), percentile(25), percentile(50), percentile(75), percentile(90) };
+        }
+    }
+}
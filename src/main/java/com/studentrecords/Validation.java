@@ -11,6 +11,7 @@ public final class Validation {
         "^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,}$"
     );
     private static final Pattern NAME_PATTERN = Pattern.compile("^[\\w\\s\\-' ]{1,80}$");
+    private static final Metrics.Timer VALIDATE_TIMER = Metrics.timer("Validation.validateStudent");
 
     private Validation() {}
 
@@ -18,7 +19,30 @@ public final class Validation {
                                           String email, String program, String yearStr,
                                           String gpaStr, String notes,
                                           boolean isEdit, String currentId) throws ValidationException {
-        validateId(studentId, isEdit ? currentId : null);
+        long start = System.nanoTime();
+        try {
+            validateId(studentId, isEdit ? currentId : null);
+            return validateRemainingFields(studentId, firstName, lastName, email, program, yearStr, gpaStr, notes);
+        } finally {
+            // Rejected input is a normal outcome here, so it is timed as well.
+            VALIDATE_TIMER.record(start, 0);
+        }
+    }
+
+    /**
+     * Same rules as {@link #validateStudent} except the duplicate-ID database lookup. For bulk
+     * paths that check ID uniqueness against an in-memory set instead.
+     */
+    public static Student validateFields(String studentId, String firstName, String lastName,
+                                         String email, String program, String yearStr,
+                                         String gpaStr, String notes) throws ValidationException {
+        validateIdFormat(studentId);
+        return validateRemainingFields(studentId, firstName, lastName, email, program, yearStr, gpaStr, notes);
+    }
+
+    private static Student validateRemainingFields(String studentId, String firstName, String lastName,
+                                                   String email, String program, String yearStr,
+                                                   String gpaStr, String notes) throws ValidationException {
         validateName(firstName, "First name");
         validateName(lastName, "Last name");
         validateEmail(email);
@@ -41,16 +65,11 @@ public final class Validation {
     }
 
     public static void validateId(String value, String excludeCurrentId) throws ValidationException {
-        value = value != null ? value.trim() : "";
-        if (value.isEmpty()) throw new ValidationException("Student ID is required.", "student_id");
-        if (!ID_PATTERN.matcher(value).matches()) {
-            throw new ValidationException(
-                "Student ID must be 3–20 characters (letters, numbers, hyphens, underscores).",
-                "student_id"
-            );
-        }
+        value = validateIdFormat(value);
         try {
-            Student existing = new Database().getStudent(value);
+            // A cached answer can lag another process's insert by one poll; the insert itself
+            // then fails on the primary key with the same message (see Database#addStudentAsync).
+            Student existing = StudentCache.shared().get(value);
             if (existing != null && !value.equals(excludeCurrentId)) {
                 throw new ValidationException(
                     "A student with ID '" + value + "' already exists. Use a unique ID.",
@@ -63,6 +82,18 @@ public final class Validation {
         }
     }
 
+    private static String validateIdFormat(String value) throws ValidationException {
+        value = value != null ? value.trim() : "";
+        if (value.isEmpty()) throw new ValidationException("Student ID is required.", "student_id");
+        if (!ID_PATTERN.matcher(value).matches()) {
+            throw new ValidationException(
+                "Student ID must be 3–20 characters (letters, numbers, hyphens, underscores).",
+                "student_id"
+            );
+        }
+        return value;
+    }
+
     private static void validateRequired(String value, String label) throws ValidationException {
         if (value == null || value.trim().isEmpty())
             throw new ValidationException(label + " is required.");